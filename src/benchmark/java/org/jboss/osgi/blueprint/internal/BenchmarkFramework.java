@@ -0,0 +1,61 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import org.jboss.osgi.spi.framework.OSGiBootstrap;
+import org.jboss.osgi.spi.framework.OSGiBootstrapProvider;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Boots the framework that is configured by jboss-osgi-framework.properties for a benchmark. 
+ * 
+ * The framework auto starts the jbosgi-blueprint bundle from the test-libs directory, 
+ * which is why the benchmarks run in the integration-test phase.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+final class BenchmarkFramework
+{
+   private BenchmarkFramework()
+   {
+   }
+
+   static Framework start() throws Exception
+   {
+      OSGiBootstrapProvider provider = OSGiBootstrap.getBootstrapProvider();
+      Framework framework = provider.getFramework();
+      framework.start();
+      return framework;
+   }
+
+   static void stop(Framework framework) throws Exception
+   {
+      if (framework != null)
+      {
+         framework.stop();
+         framework.waitForStop(10000);
+      }
+   }
+}
@@ -0,0 +1,177 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+
+import org.jboss.osgi.testing.OSGiManifestBuilder;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.test.osgi.blueprint.container.bundle.BeanA;
+import org.jboss.test.osgi.blueprint.container.bundle.BeanB;
+import org.jboss.test.osgi.blueprint.container.bundle.ServiceA;
+import org.jboss.test.osgi.blueprint.container.bundle.ServiceB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Measures the end-to-end creation of the container for the container/basic-service.xml bundle, 
+ * from bundle start to the registration of its BlueprintContainer service.
+ * 
+ * {@link #discoverDescriptors()} measures the descriptor discovery on an installed bundle, 
+ * {@link #indexedDescriptors()} the lookup in the descriptor index that the interceptor does on start.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContainerCreationBenchmark
+{
+   private static final String CONTAINER_FILTER = "(objectClass=org.osgi.service.blueprint.container.BlueprintContainer)";
+
+   private final AtomicInteger counter = new AtomicInteger();
+   private Framework framework;
+   private BundleContext context;
+   private byte[] archive;
+   private Bundle installed;
+   private final DescriptorIndex index = new DescriptorIndex();
+
+   @Setup(Level.Trial)
+   public void setUp() throws Exception
+   {
+      framework = BenchmarkFramework.start();
+      context = framework.getBundleContext();
+      archive = createArchive();
+      installed = context.installBundle("benchmark-discovery", new ByteArrayInputStream(archive));
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() throws Exception
+   {
+      installed.uninstall();
+      BenchmarkFramework.stop(framework);
+   }
+
+   @Benchmark
+   public void createContainer() throws Exception
+   {
+      String location = "benchmark-" + counter.incrementAndGet();
+      final Bundle bundle = context.installBundle(location, new ByteArrayInputStream(archive));
+      final CountDownLatch latch = new CountDownLatch(1);
+      ServiceListener listener = new ServiceListener()
+      {
+         public void serviceChanged(ServiceEvent event)
+         {
+            if (event.getType() == ServiceEvent.REGISTERED && bundle.equals(event.getServiceReference().getBundle()))
+               latch.countDown();
+         }
+      };
+      context.addServiceListener(listener, CONTAINER_FILTER);
+      try
+      {
+         bundle.start();
+         if (latch.await(30, TimeUnit.SECONDS) == false)
+            throw new IllegalStateException("BlueprintContainer not created for: " + bundle);
+      }
+      finally
+      {
+         context.removeServiceListener(listener);
+         bundle.uninstall();
+      }
+   }
+
+   @Benchmark
+   public int discoverDescriptors()
+   {
+      return DescriptorIndex.resolvePaths(installed).size();
+   }
+
+   @Benchmark
+   public int indexedDescriptors()
+   {
+      return index.getDescriptorPaths(installed).size();
+   }
+
+   private static byte[] createArchive() throws Exception
+   {
+      final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "example-blueprint");
+      archive.addClasses(BeanA.class, ServiceA.class, BeanB.class, ServiceB.class);
+      archive.addResource("container/basic-service.xml", "OSGI-INF/blueprint/basic-service.xml");
+      archive.setManifest(new Asset()
+      {
+         public InputStream openStream()
+         {
+            OSGiManifestBuilder builder = OSGiManifestBuilder.newInstance();
+            builder.addBundleSymbolicName(archive.getName());
+            builder.addBundleManifestVersion(2);
+            builder.addImportPackages(MBeanServer.class);
+            return builder.openStream();
+         }
+      });
+
+      InputStream input = archive.as(ZipExporter.class).exportZip();
+      try
+      {
+         ByteArrayOutputStream out = new ByteArrayOutputStream();
+         byte[] buffer = new byte[4096];
+         int read;
+         while ((read = input.read(buffer)) != -1)
+            out.write(buffer, 0, read);
+         return out.toByteArray();
+      }
+      finally
+      {
+         input.close();
+      }
+   }
+}
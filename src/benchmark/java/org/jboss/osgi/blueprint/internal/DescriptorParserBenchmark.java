@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.aries.blueprint.container.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Measures the parsing cost of the descriptors in src/test/resources.
+ * 
+ * {@link #parse()} is the DOM parse and metadata build that the Aries container does for every descriptor. 
+ * {@link #parseDocument()} is only the DOM parse, without any metadata. 
+ * {@link #scan()} is the streaming pass the extender does to order and cache containers. 
+ * Run with '-prof gc' to compare the allocation rates, i.e. the gc.alloc.rate.norm bytes per operation.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DescriptorParserBenchmark
+{
+   @Param({ "parser/blueprint-all-elements.xml", "parser/blueprint-basic-beans.xml", "parser/blueprint-basic-root.xml", 
+      "parser/blueprint-basic-service.xml", "parser/blueprint-root-defaults.xml", "container/basic-service.xml" })
+   public String descriptor;
+
+   private URL url;
+   private byte[] content;
+   private DescriptorScanner scanner;
+   private DocumentBuilderFactory documentFactory;
+
+   @Setup(Level.Trial)
+   public void setUp() throws Exception
+   {
+      url = getClass().getClassLoader().getResource(descriptor);
+      if (url == null)
+         throw new IllegalStateException("Cannot find: " + descriptor);
+
+      InputStream input = url.openStream();
+      try
+      {
+         ByteArrayOutputStream out = new ByteArrayOutputStream();
+         byte[] buffer = new byte[4096];
+         int read;
+         while ((read = input.read(buffer)) != -1)
+            out.write(buffer, 0, read);
+         content = out.toByteArray();
+      }
+      finally
+      {
+         input.close();
+      }
+      scanner = new DescriptorScanner();
+      documentFactory = DocumentBuilderFactory.newInstance();
+      documentFactory.setNamespaceAware(true);
+   }
+
+   @Benchmark
+   public Parser parse() throws Exception
+   {
+      Parser parser = new Parser();
+      parser.parse(Collections.singletonList(url));
+      return parser;
+   }
+
+   @Benchmark
+   public Document parseDocument() throws Exception
+   {
+      DocumentBuilder builder = documentFactory.newDocumentBuilder();
+      return builder.parse(new ByteArrayInputStream(content));
+   }
+
+   @Benchmark
+   public DescriptorInfo scan() throws Exception
+   {
+      InputStream input = new ByteArrayInputStream(content);
+      return scanner.scan(Collections.singletonList(input));
+   }
+}
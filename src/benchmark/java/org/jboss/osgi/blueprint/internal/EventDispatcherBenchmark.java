@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.launch.Framework;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+import org.osgi.service.blueprint.container.BlueprintListener;
+
+/**
+ * Measures the {@link BlueprintEventDispatcher} with N registered {@link BlueprintListener} services.
+ * 
+ * {@link #emit()} measures the cost for the emitting container thread. {@link #emitAndDeliver()} 
+ * also waits until every listener has received the event.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatcherBenchmark
+{
+   @Param({ "0", "1", "10", "100" })
+   public int listeners;
+
+   private final AtomicLong delivered = new AtomicLong();
+   private final List<ServiceRegistration> registrations = new ArrayList<ServiceRegistration>();
+   private Framework framework;
+   private ScheduledExecutorService executor;
+   private ExecutorService delivery;
+   private BlueprintEventDispatcher dispatcher;
+   private BlueprintEvent event;
+   private long expected;
+
+   @Setup(Level.Trial)
+   public void setUp() throws Exception
+   {
+      framework = BenchmarkFramework.start();
+      BundleContext context = framework.getBundleContext();
+      executor = Executors.newScheduledThreadPool(1);
+      delivery = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      dispatcher = new BlueprintEventDispatcher(context, executor, delivery, 1000, 60000L, 0L, false);
+
+      for (int i = 0; i < listeners; i++)
+      {
+         BlueprintListener listener = new BlueprintListener()
+         {
+            public void blueprintEvent(BlueprintEvent event)
+            {
+               delivered.incrementAndGet();
+            }
+         };
+         registrations.add(context.registerService(BlueprintListener.class.getName(), listener, null));
+      }
+
+      Bundle bundle = context.getBundle();
+      event = new BlueprintEvent(BlueprintEvent.CREATED, bundle, bundle);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() throws Exception
+   {
+      for (ServiceRegistration registration : registrations)
+         registration.unregister();
+
+      dispatcher.destroy();
+      executor.shutdownNow();
+      delivery.shutdownNow();
+      BenchmarkFramework.stop(framework);
+   }
+
+   @Benchmark
+   public void emit()
+   {
+      dispatcher.blueprintEvent(event);
+   }
+
+   @Benchmark
+   public void emitAndDeliver()
+   {
+      expected += listeners;
+      dispatcher.blueprintEvent(event);
+      while (delivered.get() < expected)
+         Thread.yield();
+   }
+}
@@ -0,0 +1,49 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint;
+
+//$Id$
+
+import java.util.List;
+
+import org.osgi.service.blueprint.container.BlueprintEvent;
+import org.osgi.service.blueprint.container.BlueprintListener;
+
+/**
+ * A {@link BlueprintListener} that receives the replay of the current container states in one call.
+ * 
+ * The listener is registered as a {@link BlueprintListener} service. When it is registered, the 
+ * latest event of every container is passed to {@link #blueprintEvents(List)} instead of one 
+ * {@link #blueprintEvent(BlueprintEvent)} call per container. 
+ * Events that are emitted later are delivered one by one.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public interface BlueprintBatchListener extends BlueprintListener
+{
+   /**
+    * Receive the replay events, all of which have the replay flag set. 
+    * The list and the events are shared and must not be modified.
+    */
+   void blueprintEvents(List<BlueprintEvent> events);
+}
@@ -0,0 +1,148 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint;
+
+//$Id$
+
+/**
+ * Framework properties and manifest headers understood by jbosgi-blueprint.
+ *
+ * Framework properties are read once when the Blueprint extender starts.
+ *
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public interface BlueprintProperties
+{
+   /** The number of threads that create Blueprint containers in parallel. Defaults to the number of available processors. */
+   String BOOTSTRAP_THREADS = "org.jboss.osgi.blueprint.bootstrap.threads";
+
+   /** The maximum number of container creations that wait for a bootstrap thread. Defaults to 0, which is unbounded. */
+   String BOOTSTRAP_QUEUE = "org.jboss.osgi.blueprint.bootstrap.queue";
+
+   /** The number of threads that run the grace period and service timers of the containers. Defaults to 3. */
+   String TIMER_THREADS = "org.jboss.osgi.blueprint.timer.threads";
+
+   /** 
+    * The tick in milliseconds of the hashed wheel that holds the grace period and service timeouts of all containers. 
+    * Defaults to 100. A tick of 0 schedules the timeouts on the timer threads directly.
+    */
+   String TIMER_TICK = "org.jboss.osgi.blueprint.timer.tick";
+
+   /** The number of threads that deliver events to BlueprintListeners and the EventAdmin. Defaults to the number of available processors, at least 2. */
+   String DELIVERY_THREADS = "org.jboss.osgi.blueprint.delivery.threads";
+
+   /** The maximum number of listener deliveries that wait for a delivery thread. Defaults to 0, which is unbounded. */
+   String DELIVERY_QUEUE = "org.jboss.osgi.blueprint.delivery.queue";
+
+   /** 
+    * What a bounded bootstrap pool does with a task when its queue is full, 
+    * either 'caller-runs' or 'abort'. Defaults to 'caller-runs'. Any other value, including 'discard', 
+    * is logged and replaced by 'caller-runs', since a discarded creation never completes its container.
+    * A full delivery pool always rejects the task, the event then stays queued for its listener until the next 
+    * delivery, a rejected EventAdmin post is dropped. Rejected tasks are counted in the executor statistics.
+    */
+   String EXECUTOR_REJECTION = "org.jboss.osgi.blueprint.executor.rejection";
+
+   /** 
+    * Run container creation and listener delivery on virtual threads, if the JVM supports them. Defaults to false.
+    * The thread and queue settings of the bootstrap and delivery pools are then ignored.
+    */
+   String VIRTUAL_THREADS = "org.jboss.osgi.blueprint.virtual.threads";
+
+   /** Cache scanned descriptors in the data area of the extender bundle. Defaults to true. */
+   String DESCRIPTOR_CACHE = "org.jboss.osgi.blueprint.descriptor.cache";
+
+   /** The maximum number of undelivered events per BlueprintListener. Defaults to 1000. */
+   String LISTENER_QUEUE_CAPACITY = "org.jboss.osgi.blueprint.listener.queue.capacity";
+
+   /** The time in milliseconds a BlueprintListener may take for one event before it is evicted. Defaults to 60000. */
+   String LISTENER_TIMEOUT = "org.jboss.osgi.blueprint.listener.timeout";
+
+   /** 
+    * The time in milliseconds over which blueprint events of a bundle are batched before they are posted to the EventAdmin.
+    * A WAITING or GRACE_PERIOD event that is immediately repeated within the window, with the same dependencies, is dropped. 
+    * Every change of type or dependencies is posted. Defaults to 0, which posts every event. 
+    */
+   String EVENTADMIN_BATCH_WINDOW = "org.jboss.osgi.blueprint.eventadmin.window";
+
+   /** 
+    * The default activation of Blueprint containers, either 'eager' or 'lazy'. Defaults to 'eager'.
+    * A lazy container is only created when one of its services is first requested. A container that declares 
+    * no service, or a service without explicit interfaces, is always created eagerly.
+    */
+   String ACTIVATION = "org.jboss.osgi.blueprint.activation";
+
+   /** 
+    * The time in milliseconds a service request waits for a lazy container to be created. Defaults to 30000. 
+    * The requesting thread is blocked for that time, unless it is a bootstrap thread, which never waits. 
+    */
+   String ACTIVATION_TIMEOUT = "org.jboss.osgi.blueprint.activation.timeout";
+
+   /** The manifest header that overrides the default activation for a bundle, either 'eager' or 'lazy' */
+   String ACTIVATION_HEADER = "Blueprint-Activation";
+
+   /** The lazy activation value of {@link #ACTIVATION} and {@link #ACTIVATION_HEADER} */
+   String ACTIVATION_LAZY = "lazy";
+
+   /** 
+    * The manifest header that sets the creation priority of a container, an integer that defaults to 0. 
+    * Ready containers with a higher priority are created first.
+    */
+   String PRIORITY_HEADER = "Blueprint-Priority";
+
+   /** The total time in milliseconds the extender waits for all containers to be destroyed and its threads to terminate when it stops. Defaults to 30000. */
+   String SHUTDOWN_TIMEOUT = "org.jboss.osgi.blueprint.shutdown.timeout";
+
+   /** The time in milliseconds a single container may take to be destroyed before it is reported. Defaults to 5000. */
+   String SHUTDOWN_BUDGET = "org.jboss.osgi.blueprint.shutdown.budget";
+
+   /** 
+    * Load the bean classes and referenced interfaces of a bundle ahead of its container. Defaults to false.
+    * The classes are loaded while the container is held back for another bundle, or while it parses its descriptors.
+    */
+   String PRELOAD_CLASSES = "org.jboss.osgi.blueprint.preload.classes";
+
+   /** Trace the creation of the containers and the services they wait for, see {@link BlueprintService#getCriticalPath()}. Defaults to false. */
+   String TRACE = "org.jboss.osgi.blueprint.trace";
+
+   /** 
+    * Record a digest of every component, so that {@link BlueprintService#reload(long)} can tell if the descriptors changed. 
+    * Defaults to false.
+    */
+   String RELOAD = "org.jboss.osgi.blueprint.reload";
+
+   /** 
+    * Hold back the &lt;service&gt; registrations of a container until its eager beans are initialized and then register them 
+    * in one block. Services that beans register themselves through blueprintBundleContext are not held back, but note that 
+    * blueprintBundleContext is a context of the extender that delegates to the bundle's context, not the same instance. 
+    * Defaults to false.
+    */
+   String BATCH_REGISTRATIONS = "org.jboss.osgi.blueprint.service.batch";
+
+   /** 
+    * Drop the metadata of eager singleton beans once a container is created, and retain only the type, timestamp and 
+    * a short cause of the latest event of a container. Defaults to false. 
+    * See {@link ContainerStatistics#getHeapSaved()}.
+    */
+   String LEAN = "org.jboss.osgi.blueprint.lean";
+}
@@ -23,12 +23,87 @@ package org.jboss.osgi.blueprint;
 
 //$Id$
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
 /**
- * A marker service that is registered by jbosgi-blueprint
+ * A service that is registered by jbosgi-blueprint
+ * 
+ * The statistics are only maintained when the Blueprint containers are created by the 
+ * JBoss OSGi lifecycle interceptor. With the Aries extender they are always zero.
  * 
  * @author thomas.diesler@jboss.com
  * @since 29-May-2009
  */
 public interface BlueprintService
 {
+   /**
+    * The number of bundles whose scanned descriptors were found in the descriptor cache. 
+    * The cache only serves the extender's own scan, which orders the containers. The containers still parse their descriptors.
+    */
+   long getDescriptorCacheHits();
+
+   /**
+    * The number of bundles whose descriptors had to be scanned by the extender
+    */
+   long getDescriptorCacheMisses();
+
+   /**
+    * The number of bundles whose descriptors were compiled at build time, which the extender neither scans nor caches
+    */
+   long getCompiledDescriptors();
+
+   /**
+    * Get the delivery statistics of the registered BlueprintListener services
+    */
+   List<ListenerStatistics> getListenerStatistics();
+
+   /**
+    * Get the statistics of all Blueprint containers
+    */
+   List<ContainerStatistics> getContainerStatistics();
+
+   /**
+    * Get the statistics of the Blueprint container of the given bundle
+    * @return null if the bundle has no Blueprint container
+    */
+   ContainerStatistics getContainerStatistics(long bundleId);
+
+   /**
+    * The number of tasks that wait for a thread in the bootstrap and container executors
+    */
+   int getExecutorQueueDepth();
+
+   /**
+    * Get the utilization of the creation, timer and delivery thread pools
+    */
+   List<ExecutorStatistics> getExecutorStatistics();
+
+   /**
+    * Get the critical path of the container creations, from the first container to the one that was created last. 
+    * Each container on the path waited for a service of the container before it.
+    */
+   List<CriticalPathEntry> getCriticalPath();
+
+   /**
+    * Write the traced container creations and service waits to boot-trace.json in the data area of the 
+    * extender bundle, in the Chrome trace event format
+    * @return the file that was written
+    * @throws IllegalStateException if tracing is not enabled
+    */
+   File writeBootTrace() throws IOException;
+
+   /**
+    * Reload the Blueprint container of the given bundle without restarting the bundle. 
+    * 
+    * The descriptors are compared with the ones the container was created from. If no component 
+    * changed, the container and its services stay untouched. Otherwise the container is destroyed 
+    * and created again from the current descriptors.
+    * 
+    * @return the ids of the added, removed and changed components, which is empty if the container was not reloaded
+    * @throws IllegalArgumentException if the bundle has no Blueprint container
+    * @throws IllegalStateException if reload is not enabled
+    */
+   List<String> reload(long bundleId) throws IOException;
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint;
+
+//$Id$
+
+import java.io.IOException;
+
+import javax.management.openmbean.TabularData;
+
+/**
+ * The management view of the {@link BlueprintService}
+ * 
+ * It is registered with every MBeanServer service under {@link #OBJECT_NAME}.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public interface BlueprintServiceMBean
+{
+   /** The ObjectName of the MBean */
+   String OBJECT_NAME = "jboss.osgi:service=jbosgi-blueprint";
+
+   /**
+    * The number of bundles whose scanned descriptors were found in the descriptor cache. 
+    * The cache only serves the extender's own scan, which orders the containers. The containers still parse their descriptors.
+    */
+   long getDescriptorCacheHits();
+
+   /**
+    * The number of bundles whose descriptors had to be scanned by the extender
+    */
+   long getDescriptorCacheMisses();
+
+   /**
+    * The number of bundles whose descriptors were compiled at build time, which the extender neither scans nor caches
+    */
+   long getCompiledDescriptors();
+
+   /**
+    * The number of tasks that wait for a thread in the bootstrap and container executors
+    */
+   int getExecutorQueueDepth();
+
+   /**
+    * The number of Blueprint containers
+    */
+   int getContainerCount();
+
+   /**
+    * The statistics of all Blueprint containers, indexed by bundle id
+    */
+   TabularData getContainers();
+
+   /**
+    * The utilization of the thread pools, indexed by pool name
+    */
+   TabularData getExecutors();
+
+   /**
+    * The time every container waited for each of its dependency filters, indexed by bundle id and filter
+    */
+   TabularData getDependencyWaits();
+
+   /**
+    * The containers on the critical path of the container creations
+    */
+   String[] getCriticalPath();
+
+   /**
+    * Write the boot trace to boot-trace.json in the data area of the extender bundle, in the Chrome trace event format
+    * @return the path of the file that was written
+    */
+   String writeBootTrace() throws IOException;
+
+   /**
+    * Reload the container of the given bundle if its descriptors changed
+    * @return the ids of the changed components
+    */
+   String[] reload(long bundleId) throws IOException;
+}
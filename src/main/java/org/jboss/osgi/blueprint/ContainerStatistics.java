@@ -0,0 +1,181 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint;
+
+//$Id$
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The statistics of a Blueprint container
+ * 
+ * Times are in milliseconds.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ContainerStatistics implements Serializable
+{
+   private static final long serialVersionUID = 1L;
+
+   private final long bundleId;
+   private final String symbolicName;
+   private final String state;
+   private final long stateTimestamp;
+   private final long creationLatency;
+   private final long gracePeriodWait;
+   private final int unsatisfiedReferences;
+   private final long scanTime;
+   private final long holdTime;
+   private final int batchedServices;
+   private final long registrationTime;
+   private final long heapSaved;
+   private final Map<String, Long> dependencyWaits;
+
+   public ContainerStatistics(long bundleId, String symbolicName, String state, long stateTimestamp, long creationLatency, long gracePeriodWait,
+         int unsatisfiedReferences, long scanTime, long holdTime, int batchedServices, long registrationTime,
+         long heapSaved, Map<String, Long> dependencyWaits)
+   {
+      this.bundleId = bundleId;
+      this.symbolicName = symbolicName;
+      this.state = state;
+      this.stateTimestamp = stateTimestamp;
+      this.creationLatency = creationLatency;
+      this.gracePeriodWait = gracePeriodWait;
+      this.unsatisfiedReferences = unsatisfiedReferences;
+      this.scanTime = scanTime;
+      this.holdTime = holdTime;
+      this.batchedServices = batchedServices;
+      this.registrationTime = registrationTime;
+      this.heapSaved = heapSaved;
+      this.dependencyWaits = (dependencyWaits != null ? Collections.unmodifiableMap(new LinkedHashMap<String, Long>(dependencyWaits)) : Collections
+            .<String, Long> emptyMap());
+   }
+
+   public long getBundleId()
+   {
+      return bundleId;
+   }
+
+   public String getSymbolicName()
+   {
+      return symbolicName;
+   }
+
+   /**
+    * The type of the latest blueprint event, i.e. CREATING, GRACE_PERIOD, CREATED, FAILURE
+    */
+   public String getState()
+   {
+      return state;
+   }
+
+   /**
+    * The timestamp of the latest blueprint event
+    */
+   public long getStateTimestamp()
+   {
+      return stateTimestamp;
+   }
+
+   /**
+    * The time from CREATING to CREATED, or -1 if the container is not created
+    */
+   public long getCreationLatency()
+   {
+      return creationLatency;
+   }
+
+   /**
+    * The time the container spent in GRACE_PERIOD, including an ongoing grace period
+    */
+   public long getGracePeriodWait()
+   {
+      return gracePeriodWait;
+   }
+
+   /**
+    * The number of mandatory references the container currently waits for
+    */
+   public int getUnsatisfiedReferences()
+   {
+      return unsatisfiedReferences;
+   }
+
+   /**
+    * The time it took the extender to scan the descriptors
+    */
+   public long getScanTime()
+   {
+      return scanTime;
+   }
+
+   /**
+    * The time the container was held back for a bundle that exports one of its references
+    */
+   public long getHoldTime()
+   {
+      return holdTime;
+   }
+
+   /**
+    * The number of services that were registered in one block after the beans were initialized
+    */
+   public int getBatchedServices()
+   {
+      return batchedServices;
+   }
+
+   /**
+    * The time it took to register the batched services
+    */
+   public long getRegistrationTime()
+   {
+      return registrationTime;
+   }
+
+   /**
+    * The estimated heap in bytes that lean mode released from the metadata and the retained event of the container
+    */
+   public long getHeapSaved()
+   {
+      return heapSaved;
+   }
+
+   /**
+    * The time the container waited for each of its dependency filters in GRACE_PERIOD, including ongoing waits
+    */
+   public Map<String, Long> getDependencyWaits()
+   {
+      return dependencyWaits;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ContainerStatistics[" + symbolicName + ":" + bundleId + "," + state + ",latency=" + creationLatency + "ms,grace=" + gracePeriodWait
+            + "ms,unsatisfied=" + unsatisfiedReferences + "]";
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint;
+
+//$Id$
+
+import java.io.Serializable;
+
+/**
+ * A container on the critical path of the Blueprint boot
+ * 
+ * The entries of a critical path are ordered from the first container to the container that 
+ * was created last. Each entry was released by the service of the entry before it.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class CriticalPathEntry implements Serializable
+{
+   private static final long serialVersionUID = 1L;
+
+   private final long bundleId;
+   private final String symbolicName;
+   private final long start;
+   private final long end;
+   private final long waitTime;
+   private final String waitedFilter;
+
+   public CriticalPathEntry(long bundleId, String symbolicName, long start, long end, long waitTime, String waitedFilter)
+   {
+      this.bundleId = bundleId;
+      this.symbolicName = symbolicName;
+      this.start = start;
+      this.end = end;
+      this.waitTime = waitTime;
+      this.waitedFilter = waitedFilter;
+   }
+
+   public long getBundleId()
+   {
+      return bundleId;
+   }
+
+   public String getSymbolicName()
+   {
+      return symbolicName;
+   }
+
+   /**
+    * The timestamp of the CREATING event
+    */
+   public long getStart()
+   {
+      return start;
+   }
+
+   /**
+    * The timestamp of the CREATED or FAILURE event
+    */
+   public long getEnd()
+   {
+      return end;
+   }
+
+   /**
+    * The time in milliseconds the container waited for the previous entry
+    */
+   public long getWaitTime()
+   {
+      return waitTime;
+   }
+
+   /**
+    * The dependency filter that the previous entry satisfied, or null for the first entry
+    */
+   public String getWaitedFilter()
+   {
+      return waitedFilter;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "CriticalPathEntry[" + symbolicName + ":" + bundleId + ",duration=" + (end - start) + "ms,wait=" + waitTime + "ms,filter=" + waitedFilter + "]";
+   }
+}
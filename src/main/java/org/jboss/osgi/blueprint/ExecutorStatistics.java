@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint;
+
+//$Id$
+
+import java.io.Serializable;
+
+/**
+ * The utilization of one of the thread pools of the Blueprint extender
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ExecutorStatistics implements Serializable
+{
+   private static final long serialVersionUID = 1L;
+
+   private final String name;
+   private final int poolSize;
+   private final int activeThreads;
+   private final int largestPoolSize;
+   private final int maximumPoolSize;
+   private final int queueDepth;
+   private final int queueCapacity;
+   private final long completedTasks;
+   private final long rejectedTasks;
+
+   public ExecutorStatistics(String name, int poolSize, int activeThreads, int largestPoolSize, int maximumPoolSize, int queueDepth, int queueCapacity,
+         long completedTasks, long rejectedTasks)
+   {
+      this.name = name;
+      this.poolSize = poolSize;
+      this.activeThreads = activeThreads;
+      this.largestPoolSize = largestPoolSize;
+      this.maximumPoolSize = maximumPoolSize;
+      this.queueDepth = queueDepth;
+      this.queueCapacity = queueCapacity;
+      this.completedTasks = completedTasks;
+      this.rejectedTasks = rejectedTasks;
+   }
+
+   /**
+    * The name of the pool, i.e. creation, timer or delivery
+    */
+   public String getName()
+   {
+      return name;
+   }
+
+   /**
+    * The current number of threads
+    */
+   public int getPoolSize()
+   {
+      return poolSize;
+   }
+
+   /**
+    * The number of threads that are executing a task
+    */
+   public int getActiveThreads()
+   {
+      return activeThreads;
+   }
+
+   /**
+    * The largest number of threads that were in the pool at the same time
+    */
+   public int getLargestPoolSize()
+   {
+      return largestPoolSize;
+   }
+
+   /**
+    * The maximum number of threads, or Integer.MAX_VALUE if the pool starts a virtual thread per task
+    */
+   public int getMaximumPoolSize()
+   {
+      return maximumPoolSize;
+   }
+
+   /**
+    * The number of tasks that wait for a thread
+    */
+   public int getQueueDepth()
+   {
+      return queueDepth;
+   }
+
+   /**
+    * The maximum number of waiting tasks, or Integer.MAX_VALUE if the queue is unbounded
+    */
+   public int getQueueCapacity()
+   {
+      return queueCapacity;
+   }
+
+   public long getCompletedTasks()
+   {
+      return completedTasks;
+   }
+
+   /**
+    * The number of tasks that were handed to the rejection policy while the pool was running
+    */
+   public long getRejectedTasks()
+   {
+      return rejectedTasks;
+   }
+
+   /**
+    * The fraction of the maximum pool size that is executing a task
+    */
+   public double getUtilization()
+   {
+      return maximumPoolSize > 0 ? (double)activeThreads / maximumPoolSize : 0;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ExecutorStatistics[" + name + ",active=" + activeThreads + "/" + maximumPoolSize + ",queue=" + queueDepth + ",completed=" + completedTasks
+            + ",rejected=" + rejectedTasks + "]";
+   }
+}
@@ -0,0 +1,109 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint;
+
+//$Id$
+
+import java.io.Serializable;
+
+/**
+ * The delivery statistics of a registered BlueprintListener
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ListenerStatistics implements Serializable
+{
+   private static final long serialVersionUID = 1L;
+
+   private final String listener;
+   private final int queueDepth;
+   private final long delivered;
+   private final long dropped;
+   private final long averageLatency;
+   private final long maxLatency;
+
+   public ListenerStatistics(String listener, int queueDepth, long delivered, long dropped, long averageLatency, long maxLatency)
+   {
+      this.listener = listener;
+      this.queueDepth = queueDepth;
+      this.delivered = delivered;
+      this.dropped = dropped;
+      this.averageLatency = averageLatency;
+      this.maxLatency = maxLatency;
+   }
+
+   /**
+    * The string representation of the listener
+    */
+   public String getListener()
+   {
+      return listener;
+   }
+
+   /**
+    * The number of events that wait for delivery
+    */
+   public int getQueueDepth()
+   {
+      return queueDepth;
+   }
+
+   /**
+    * The number of delivered events
+    */
+   public long getDelivered()
+   {
+      return delivered;
+   }
+
+   /**
+    * The number of events that were dropped because the queue was full
+    */
+   public long getDropped()
+   {
+      return dropped;
+   }
+
+   /**
+    * The average time in milliseconds from emitting an event to the listener returning
+    */
+   public long getAverageLatency()
+   {
+      return averageLatency;
+   }
+
+   /**
+    * The maximum time in milliseconds from emitting an event to the listener returning
+    */
+   public long getMaxLatency()
+   {
+      return maxLatency;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ListenerStatistics[" + listener + ",depth=" + queueDepth + ",delivered=" + delivered + ",dropped=" + dropped + ",avg="
+            + averageLatency + "ms,max=" + maxLatency + "ms]";
+   }
+}
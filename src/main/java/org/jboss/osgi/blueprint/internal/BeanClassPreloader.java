@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.osgi.framework.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the bean classes and referenced interfaces of a bundle ahead of its container.
+ * 
+ * The container instantiates and injects beans reflectively. The preloader loads the classes 
+ * through the bundle and resolves their public constructors and methods, so that the class 
+ * definitions and the reflection data of the JVM are in place when the container needs them. 
+ * It runs while a container is held back for another bundle, or in parallel to the descriptor 
+ * parsing of the container.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class BeanClassPreloader
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(BeanClassPreloader.class);
+
+   /**
+    * Preload the classes of the given descriptor info
+    * @return the number of classes that were loaded
+    */
+   int preload(Bundle bundle, DescriptorInfo info)
+   {
+      Set<String> classNames = new LinkedHashSet<String>();
+      classNames.addAll(info.getBeanClasses());
+      classNames.addAll(info.getMandatoryReferences());
+      classNames.addAll(info.getOptionalReferences());
+
+      int count = 0;
+      for (String className : classNames)
+      {
+         if (bundle.getState() == Bundle.UNINSTALLED)
+            break;
+
+         try
+         {
+            Class<?> clazz = bundle.loadClass(className);
+            clazz.getConstructors();
+            clazz.getMethods();
+            count++;
+         }
+         catch (ClassNotFoundException ex)
+         {
+            // The container reports the missing class
+            log.debug("Cannot preload: " + className);
+         }
+         catch (LinkageError er)
+         {
+            log.debug("Cannot preload: " + className, er);
+         }
+         catch (IllegalStateException ex)
+         {
+            // The bundle was uninstalled concurrently
+            break;
+         }
+      }
+      log.debug("Preloaded " + count + " classes for: " + bundle);
+      return count;
+   }
+}
@@ -43,13 +43,10 @@ public class BlueprintActivator implements BundleActivator
    
    private BundleActivator ariesActivator;
    private BlueprintInterceptor jbossInterceptor;
+   private BlueprintManagement management;
    
    public void start(BundleContext context) throws Exception
    {
-      // Register the marker service
-      BlueprintService service = new BlueprintService(){};
-      context.registerService(BlueprintService.class.getName(), service, null);
-      
       ServiceReference sref = context.getServiceReference("org.jboss.osgi.deployment.interceptor.LifecycleInterceptorService");
       if (sref != null)
       {
@@ -63,10 +60,24 @@ public class BlueprintActivator implements BundleActivator
          ariesActivator = new BlueprintExtender();
          ariesActivator.start(context);
       }
+      
+      // Register the blueprint service
+      BlueprintService service = new BlueprintServiceImpl(jbossInterceptor);
+      context.registerService(BlueprintService.class.getName(), service, null);
+      
+      // Register the management view with the MBeanServer
+      management = new BlueprintManagement(service);
+      management.start(context);
    }
 
    public void stop(BundleContext context) throws Exception
    {
+      if (management != null)
+      {
+         management.stop();
+         management = null;
+      }
+      
       if (ariesActivator != null)
       {
          log.debug("Stop: " + ariesActivator.getClass().getName());
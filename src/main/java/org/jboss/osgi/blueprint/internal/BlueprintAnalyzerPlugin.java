@@ -0,0 +1,414 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.aries.blueprint.BlueprintConstants;
+
+import aQute.bnd.service.AnalyzerPlugin;
+import aQute.lib.osgi.Analyzer;
+import aQute.lib.osgi.EmbeddedResource;
+import aQute.lib.osgi.Jar;
+import aQute.lib.osgi.Resource;
+
+/**
+ * A bnd plugin that compiles the Blueprint descriptors of a bundle at build time.
+ * 
+ * It validates the bean classes, service interfaces and reference interfaces of the descriptors against the 
+ * classes of the bundle and its build classpath, and the component references against the declared components. 
+ * The descriptor info, with the bean classes ordered by the dependencies between the components, is written 
+ * to {@link CompiledDescriptor#ARTIFACT_PATH}, which the extender then uses instead of scanning the descriptors.
+ * 
+ * The plugin is configured with the bnd instruction 
+ * <pre>
+ *    -plugin: org.jboss.osgi.blueprint.internal.BlueprintAnalyzerPlugin
+ * </pre>
+ * and needs jbosgi-blueprint and slf4j-api on the plugin classpath.
+ * 
+ * The plugin runs at build time only and is never loaded by the extender at runtime. It lives in the bundle 
+ * because the bundle's Import-Package is an explicit list without aQute.*, so the bnd classes it refers to 
+ * are neither imported nor required when the extender is installed. Adding a wildcard import would break that.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class BlueprintAnalyzerPlugin implements AnalyzerPlugin
+{
+   private static final String DEFAULT_DIRECTORY = "OSGI-INF/blueprint/";
+
+   // The components that the container provides to every descriptor
+   private static final Set<String> ENVIRONMENT_COMPONENTS = new HashSet<String>(Arrays.asList("blueprintBundle", "blueprintBundleContext",
+         "blueprintContainer", "blueprintConverter"));
+
+   public boolean analyzeJar(Analyzer analyzer) throws Exception
+   {
+      Jar jar = analyzer.getJar();
+      List<String> paths = getDescriptorPaths(analyzer, jar);
+      if (paths.isEmpty())
+         return false;
+
+      List<byte[]> contents = new ArrayList<byte[]>(paths.size());
+      for (String path : paths)
+         contents.add(readContent(jar.getResource(path)));
+
+      ComponentGraph graph = new ComponentGraph();
+      for (int i = 0; i < paths.size(); i++)
+      {
+         try
+         {
+            graph.scan(contents.get(i));
+         }
+         catch (XMLStreamException ex)
+         {
+            analyzer.error("Invalid blueprint descriptor %s: %s", paths.get(i), ex.getMessage());
+            return false;
+         }
+      }
+
+      DescriptorInfo info = new DescriptorScanner().scan(getInputs(contents));
+      validateClasses(analyzer, info);
+      validateReferences(analyzer, graph);
+
+      List<String> beanClasses = graph.getBeanClasses(analyzer);
+      DescriptorInfo compiled = new DescriptorInfo(info.getServices(), info.getMandatoryReferences(), info.getOptionalReferences(),
+            new LinkedHashSet<String>(beanClasses));
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      CompiledDescriptor.write(out, paths, compiled);
+      out.close();
+
+      jar.putResource(CompiledDescriptor.ARTIFACT_PATH, new EmbeddedResource(bytes.toByteArray(), System.currentTimeMillis()));
+      return false;
+   }
+
+   /**
+    * Get the sorted descriptor paths of the bundle, the same way {@link DescriptorIndex} resolves them at runtime
+    */
+   private static List<String> getDescriptorPaths(Analyzer analyzer, Jar jar)
+   {
+      List<String> paths = new ArrayList<String>();
+      String header = analyzer.getProperty(BlueprintConstants.BUNDLE_BLUEPRINT_HEADER);
+      if (header != null)
+      {
+         StringTokenizer tokenizer = new StringTokenizer(header, ",");
+         while (tokenizer.hasMoreTokens())
+         {
+            String path = tokenizer.nextToken();
+            int paramIndex = path.indexOf(';');
+            if (paramIndex >= 0)
+               path = path.substring(0, paramIndex);
+
+            path = path.trim();
+            if (path.startsWith("/"))
+               path = path.substring(1);
+            if (path.length() == 0)
+               continue;
+
+            int slashIndex = path.lastIndexOf('/');
+            if (path.endsWith("/"))
+               findEntries(jar, path, "*.xml", paths);
+            else if (path.indexOf('*', slashIndex + 1) >= 0)
+               findEntries(jar, path.substring(0, slashIndex + 1), path.substring(slashIndex + 1), paths);
+            else if (jar.getResource(path) != null)
+               paths.add(path);
+            else
+               analyzer.error("Cannot find blueprint descriptor: %s", path);
+         }
+      }
+      else
+      {
+         findEntries(jar, DEFAULT_DIRECTORY, "*.xml", paths);
+      }
+      Collections.sort(paths);
+      return paths;
+   }
+
+   private static void findEntries(Jar jar, String directory, String pattern, List<String> paths)
+   {
+      for (String path : jar.getResources().keySet())
+      {
+         if (path.startsWith(directory) && path.indexOf('/', directory.length()) < 0)
+         {
+            if (matches(path.substring(directory.length()), pattern))
+               paths.add(path);
+         }
+      }
+   }
+
+   private static boolean matches(String name, String pattern)
+   {
+      int wildcard = pattern.indexOf('*');
+      if (wildcard < 0)
+         return name.equals(pattern);
+
+      String prefix = pattern.substring(0, wildcard);
+      String suffix = pattern.substring(wildcard + 1);
+      return name.length() >= prefix.length() + suffix.length() && name.startsWith(prefix) && name.endsWith(suffix);
+   }
+
+   private static void validateClasses(Analyzer analyzer, DescriptorInfo info)
+   {
+      for (String className : info.getBeanClasses())
+         validateClass(analyzer, className, "bean class");
+      for (String className : info.getExportedInterfaces())
+         validateClass(analyzer, className, "service interface");
+      for (String className : info.getMandatoryReferences())
+         validateClass(analyzer, className, "reference interface");
+      for (String className : info.getOptionalReferences())
+         validateClass(analyzer, className, "reference interface");
+   }
+
+   /**
+    * A class of a package that the bundle contains must be in the bundle, any other class must be on the build classpath
+    */
+   private static void validateClass(Analyzer analyzer, String className, String kind)
+   {
+      // Property placeholders are resolved at runtime
+      if (className.indexOf("${") >= 0)
+         return;
+
+      String resource = className.replace('.', '/') + ".class";
+      int lastDot = className.lastIndexOf('.');
+      String directory = (lastDot > 0 ? className.substring(0, lastDot).replace('.', '/') : "");
+
+      Jar jar = analyzer.getJar();
+      if (jar.getResource(resource) != null)
+         return;
+
+      if (jar.getDirectories().containsKey(directory))
+      {
+         analyzer.error("Blueprint %s not found in bundle: %s", kind, className);
+         return;
+      }
+
+      for (Jar entry : analyzer.getClasspath())
+      {
+         if (entry.getResource(resource) != null)
+            return;
+      }
+      analyzer.warning("Blueprint %s not found on the classpath: %s", kind, className);
+   }
+
+   private static void validateReferences(Analyzer analyzer, ComponentGraph graph)
+   {
+      for (Component component : graph.components)
+      {
+         for (String dependency : component.dependencies)
+         {
+            if (graph.byId.containsKey(dependency) == false && ENVIRONMENT_COMPONENTS.contains(dependency) == false)
+               analyzer.warning("Blueprint component %s refers to an undeclared component: %s", component, dependency);
+         }
+      }
+   }
+
+   private static List<InputStream> getInputs(List<byte[]> contents)
+   {
+      List<InputStream> inputs = new ArrayList<InputStream>(contents.size());
+      for (byte[] content : contents)
+         inputs.add(new ByteArrayInputStream(content));
+      return inputs;
+   }
+
+   private static byte[] readContent(Resource resource) throws Exception
+   {
+      InputStream input = resource.openInputStream();
+      try
+      {
+         ByteArrayOutputStream out = new ByteArrayOutputStream();
+         byte[] buffer = new byte[4096];
+         int read;
+         while ((read = input.read(buffer)) != -1)
+            out.write(buffer, 0, read);
+
+         return out.toByteArray();
+      }
+      finally
+      {
+         input.close();
+      }
+   }
+
+   /**
+    * A top level component with the bean classes it declares, including its inlined beans, 
+    * and the ids of the components it refers to
+    */
+   private static class Component
+   {
+      final String id;
+      final List<String> beanClasses = new ArrayList<String>();
+      final Set<String> dependencies = new LinkedHashSet<String>();
+
+      Component(String id)
+      {
+         this.id = id;
+      }
+
+      @Override
+      public String toString()
+      {
+         return id != null ? id : "<anonymous>";
+      }
+   }
+
+   /**
+    * The top level components of the descriptors and the references between them
+    */
+   private static class ComponentGraph
+   {
+      private final XMLInputFactory factory;
+      final List<Component> components = new ArrayList<Component>();
+      final Map<String, Component> byId = new LinkedHashMap<String, Component>();
+
+      ComponentGraph()
+      {
+         factory = XMLInputFactory.newInstance();
+         factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+         factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+      }
+
+      void scan(byte[] content) throws XMLStreamException
+      {
+         XMLStreamReader reader = factory.createXMLStreamReader(new ByteArrayInputStream(content));
+         try
+         {
+            int depth = 0;
+            Component component = null;
+            while (reader.hasNext())
+            {
+               int event = reader.next();
+               if (event == XMLStreamConstants.START_ELEMENT)
+               {
+                  depth++;
+                  if (depth == 2)
+                  {
+                     component = new Component(reader.getAttributeValue(null, "id"));
+                     components.add(component);
+                     if (component.id != null)
+                        byId.put(component.id, component);
+                  }
+                  if (component != null && DescriptorScanner.BLUEPRINT_NAMESPACE.equals(reader.getNamespaceURI()))
+                     addElement(component, reader);
+               }
+               else if (event == XMLStreamConstants.END_ELEMENT)
+               {
+                  if (depth == 2)
+                     component = null;
+                  depth--;
+               }
+            }
+         }
+         finally
+         {
+            reader.close();
+         }
+      }
+
+      private static void addElement(Component component, XMLStreamReader reader)
+      {
+         String localName = reader.getLocalName();
+         if ("bean".equals(localName))
+         {
+            String className = reader.getAttributeValue(null, "class");
+            if (className != null && className.trim().length() > 0)
+               component.beanClasses.add(className.trim());
+         }
+         else if ("ref".equals(localName))
+         {
+            addDependency(component, reader.getAttributeValue(null, "component-id"));
+         }
+
+         addDependency(component, reader.getAttributeValue(null, "ref"));
+         addDependency(component, reader.getAttributeValue(null, "factory-ref"));
+         String dependsOn = reader.getAttributeValue(null, "depends-on");
+         if (dependsOn != null)
+         {
+            StringTokenizer tokenizer = new StringTokenizer(dependsOn, ", \t\n\r");
+            while (tokenizer.hasMoreTokens())
+               addDependency(component, tokenizer.nextToken());
+         }
+      }
+
+      private static void addDependency(Component component, String id)
+      {
+         if (id != null && id.trim().length() > 0 && id.trim().equals(component.id) == false)
+            component.dependencies.add(id.trim());
+      }
+
+      /**
+       * Get the bean classes with the classes of a component's dependencies ahead of its own
+       */
+      List<String> getBeanClasses(Analyzer analyzer)
+      {
+         Set<Component> visited = new HashSet<Component>();
+         Set<Component> visiting = new HashSet<Component>();
+         Set<String> result = new LinkedHashSet<String>();
+         for (Component component : components)
+            visit(analyzer, component, visited, visiting, result);
+         return new ArrayList<String>(result);
+      }
+
+      private void visit(Analyzer analyzer, Component component, Set<Component> visited, Set<Component> visiting, Set<String> result)
+      {
+         if (visited.contains(component))
+            return;
+
+         if (visiting.add(component) == false)
+         {
+            // The container resolves cycles through properties, constructor cycles fail at runtime
+            analyzer.warning("Blueprint component %s is part of a dependency cycle", component);
+            return;
+         }
+
+         for (String id : component.dependencies)
+         {
+            Component dependency = byId.get(id);
+            if (dependency != null)
+               visit(analyzer, dependency, visited, visiting, result);
+         }
+         visiting.remove(component);
+         visited.add(component);
+         result.addAll(component.beanClasses);
+      }
+   }
+}
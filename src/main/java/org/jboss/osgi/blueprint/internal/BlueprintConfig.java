@@ -0,0 +1,96 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import org.osgi.framework.BundleContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Typed access to the framework properties that configure the Blueprint extender.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class BlueprintConfig
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(BlueprintConfig.class);
+
+   private final BundleContext context;
+
+   BlueprintConfig(BundleContext context)
+   {
+      if (context == null)
+         throw new IllegalArgumentException("Null context");
+      
+      this.context = context;
+   }
+
+   String getString(String key, String defaultValue)
+   {
+      String value = context.getProperty(key);
+      return value != null && value.trim().length() > 0 ? value.trim() : defaultValue;
+   }
+
+   int getInteger(String key, int defaultValue)
+   {
+      String value = getString(key, null);
+      if (value == null)
+         return defaultValue;
+
+      try
+      {
+         return Integer.parseInt(value);
+      }
+      catch (NumberFormatException ex)
+      {
+         log.warn("Invalid value for " + key + ": " + value + ", using " + defaultValue);
+         return defaultValue;
+      }
+   }
+
+   long getLong(String key, long defaultValue)
+   {
+      String value = getString(key, null);
+      if (value == null)
+         return defaultValue;
+
+      try
+      {
+         return Long.parseLong(value);
+      }
+      catch (NumberFormatException ex)
+      {
+         log.warn("Invalid value for " + key + ": " + value + ", using " + defaultValue);
+         return defaultValue;
+      }
+   }
+
+   boolean getBoolean(String key, boolean defaultValue)
+   {
+      String value = getString(key, null);
+      return value != null ? Boolean.valueOf(value) : defaultValue;
+   }
+}
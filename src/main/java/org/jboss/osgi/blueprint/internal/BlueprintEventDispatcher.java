@@ -23,22 +23,22 @@ package org.jboss.osgi.blueprint.internal;
 
 //$Id$
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jboss.osgi.blueprint.ListenerStatistics;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
@@ -61,6 +61,16 @@ import org.apache.aries.blueprint.utils.JavaUtils;
  * deliver {@link BlueprintEvent}s.
  *
  * This is a copy of the Aries  BlueprintEventDispatcher which is package protexted 
+ *
+ * Every {@link BlueprintListener} service gets its own bounded {@link ListenerQueue}. Emitting an event only 
+ * enqueues it, so a slow listener delays itself but no container. A listener whose delivery takes longer than 
+ * the listener timeout is evicted by a watchdog, the emitting thread never waits for it.
+ * 
+ * An event is recorded for replay, but neither locks nor allocates, while there is no listener service and no 
+ * EventAdmin. Only the extender listeners are called then.
+ * 
+ * With compact states, the retained event of a bundle that is not waiting for dependencies only keeps its 
+ * type, timestamp and a short description of its cause.
  * 
  * @version $Rev$Date: 2010-01-06 07:05:04 +0100 (Wed, 06 Jan 2010) 
  */
@@ -68,26 +78,36 @@ class BlueprintEventDispatcher implements BlueprintListener, SynchronousBundleLi
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BlueprintEventDispatcher.class);
 
-    private final Set<BlueprintListener> listeners = new CopyOnWriteArraySet<BlueprintListener>();
-    private final Map<Bundle, BlueprintEvent> states = new ConcurrentHashMap<Bundle, BlueprintEvent>();
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
-    private final ExecutorService sharedExecutor;
+    private final Map<BlueprintListener, ListenerQueue> listeners = new ConcurrentHashMap<BlueprintListener, ListenerQueue>();
+    private volatile BlueprintListener[] extenderListeners = new BlueprintListener[0];
+    private final Map<Bundle, State> states = new ConcurrentHashMap<Bundle, State>();
+    private final ExecutorService executor;
+    private final ScheduledExecutorService sharedExecutor;
     private final EventAdminListener eventAdminListener;
     private final ServiceTracker containerListenerTracker;
+    private final ScheduledFuture<?> watchdog;
+    private final int queueCapacity;
+    private final long listenerTimeout;
+    private final boolean compactStates;
 
-    BlueprintEventDispatcher(final BundleContext bundleContext, ExecutorService sharedExecutor) {
+    BlueprintEventDispatcher(final BundleContext bundleContext, ScheduledExecutorService sharedExecutor, ExecutorService deliveryExecutor, int queueCapacity, long listenerTimeout, long eventAdminWindow, boolean compactStates) {
 
         assert bundleContext != null;
         assert sharedExecutor != null;
+        assert deliveryExecutor != null;
 
         this.sharedExecutor = sharedExecutor;
+        this.executor = deliveryExecutor;
+        this.queueCapacity = queueCapacity;
+        this.listenerTimeout = listenerTimeout;
+        this.compactStates = compactStates;
 
         bundleContext.addBundleListener(this);
 
         EventAdminListener listener = null;
         try {
             getClass().getClassLoader().loadClass("org.osgi.service.event.EventAdmin");
-            listener = new EventAdminListener(bundleContext);
+            listener = new EventAdminListener(bundleContext, sharedExecutor, deliveryExecutor, eventAdminWindow);
         } catch (Throwable t) {
             // Ignore, if the EventAdmin package is not available, just don't use it
             LOGGER.debug("EventAdmin package is not available, just don't use it");
@@ -97,11 +117,14 @@ class BlueprintEventDispatcher implements BlueprintListener, SynchronousBundleLi
         this.containerListenerTracker = new ServiceTracker(bundleContext, BlueprintListener.class.getName(), new ServiceTrackerCustomizer() {
             public Object addingService(ServiceReference reference) {
                 BlueprintListener listener = (BlueprintListener) bundleContext.getService(reference);
+                ListenerQueue queue = new ListenerQueue(listener, executor, BlueprintEventDispatcher.this.queueCapacity, BlueprintEventDispatcher.this.listenerTimeout);
 
+                // Events emitted from now on are buffered by the queue until the replay is queued
+                queue.beginReplay();
                 synchronized (listeners) {
-                    sendInitialEvents(listener);
-                    listeners.add(listener);
+                    listeners.put(listener, queue);
                 }
+                queue.endReplay(getReplayEvents());
 
                 return listener;
             }
@@ -110,45 +133,110 @@ class BlueprintEventDispatcher implements BlueprintListener, SynchronousBundleLi
             }
 
             public void removedService(ServiceReference reference, Object service) {
-                listeners.remove(service);
+                ListenerQueue queue = listeners.remove(service);
+                if (queue != null) {
+                    queue.close();
+                }
                 bundleContext.ungetService(reference);
             }
         });
         this.containerListenerTracker.open();
+
+        // Evict stalled listeners without blocking the emitting threads
+        long period = Math.max(1000L, Math.min(listenerTimeout / 4, 5000L));
+        this.watchdog = sharedExecutor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                evictStalledListeners();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
     }
 
-    private void sendInitialEvents(BlueprintListener listener) {
-        for (Map.Entry<Bundle, BlueprintEvent> entry : states.entrySet()) {
-            try {
-                callListener(listener, new BlueprintEvent(entry.getValue(), true));
-            } catch (RejectedExecutionException ree) {
-                LOGGER.warn("Executor shut down", ree);
-                break;
+    /**
+     * Take a snapshot of the replay events, without blocking the emitting threads
+     */
+    private List<BlueprintEvent> getReplayEvents() {
+        List<BlueprintEvent> replay = new ArrayList<BlueprintEvent>(states.size());
+        for (State state : states.values()) {
+            replay.add(state.getReplay());
+        }
+        return replay;
+    }
+
+    private void evictStalledListeners() {
+        for (ListenerQueue queue : listeners.values()) {
+            if (queue.isStalled() || queue.isClosed()) {
+                if (queue.isStalled()) {
+                    LOGGER.warn("Listener timed out, will be ignored: {}", queue.getListener());
+                }
+                listeners.remove(queue.getListener());
+                queue.close();
             }
         }
     }
 
-    public void blueprintEvent(final BlueprintEvent event) {
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("Sending blueprint container event {} for bundle {}", toString(event), event.getBundle().getSymbolicName());
+    /**
+     * Get the delivery statistics of the registered listeners
+     */
+    List<ListenerStatistics> getListenerStatistics() {
+        List<ListenerStatistics> result = new ArrayList<ListenerStatistics>();
+        for (ListenerQueue queue : listeners.values()) {
+            result.add(queue.getStatistics());
         }
+        return result;
+    }
+
+    /**
+     * Add a listener of the extender itself. Extender listeners are called synchronously
+     * on the emitting thread, before any registered {@link BlueprintListener} service.
+     */
+    synchronized void addExtenderListener(BlueprintListener listener) {
+        List<BlueprintListener> copy = new ArrayList<BlueprintListener>(Arrays.asList(extenderListeners));
+        copy.add(listener);
+        extenderListeners = copy.toArray(new BlueprintListener[copy.size()]);
+    }
+
+    synchronized void removeExtenderListener(BlueprintListener listener) {
+        List<BlueprintListener> copy = new ArrayList<BlueprintListener>(Arrays.asList(extenderListeners));
+        copy.remove(listener);
+        extenderListeners = copy.toArray(new BlueprintListener[copy.size()]);
+    }
 
-        synchronized (listeners) {
-            callListeners(event);
-            states.put(event.getBundle(), event);
+    public void blueprintEvent(final BlueprintEvent event) {
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Sending blueprint container event {} for bundle {}", toString(event), event.getBundle().getSymbolicName());
         }
 
-        if (eventAdminListener != null) {
+        BlueprintListener[] extenders = extenderListeners;
+        for (int i = 0; i < extenders.length; i++) {
             try {
-                sharedExecutor.submit(new Runnable() {
-                    public void run() {
-                        eventAdminListener.blueprintEvent(event);
-                    }
-                });
-            } catch (RejectedExecutionException ree) {
-                LOGGER.warn("Executor shut down", ree);
+                extenders[i].blueprintEvent(event);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Extender listener caused an exception", ex);
+            }
+        }
+
+        // The state is updated before the listeners are read, a listener that is added 
+        // concurrently either receives the event or finds it in its replay
+        updateState(event);
+        if (listeners.isEmpty() == false) {
+            synchronized (listeners) {
+                callListeners(event);
             }
         }
+
+        if (eventAdminListener != null && eventAdminListener.isAvailable()) {
+            eventAdminListener.publish(event);
+        }
+    }
+
+    private void updateState(BlueprintEvent event) {
+        Bundle bundle = event.getBundle();
+        State state = states.get(bundle);
+        if (state != null) {
+            state.update(event, compactStates);
+        } else {
+            states.put(bundle, new State(event, compactStates));
+        }
     }
 
     private static String toString(BlueprintEvent event) {
@@ -158,7 +246,24 @@ class BlueprintEventDispatcher implements BlueprintListener, SynchronousBundleLi
                 + "]";
     }
 
-    private static String getEventType(int type) {
+    /**
+     * Get the latest event of the given bundle
+     * @return null if the bundle has no container
+     */
+    BlueprintEvent getState(Bundle bundle) {
+        State state = states.get(bundle);
+        return state != null ? state.event : null;
+    }
+
+    /**
+     * Get the estimated heap that was released by compacting the latest event of the given bundle
+     */
+    long getCompactedBytes(Bundle bundle) {
+        State state = states.get(bundle);
+        return state != null ? state.compacted : 0;
+    }
+
+    static String getEventType(int type) {
         switch (type) {
             case BlueprintEvent.CREATING:
                 return "CREATING";
@@ -180,44 +285,16 @@ class BlueprintEventDispatcher implements BlueprintListener, SynchronousBundleLi
     }
 
     private void callListeners(BlueprintEvent event) {
-        for (final BlueprintListener listener : listeners) {
-            try {
-                callListener(listener, event);
-            } catch (RejectedExecutionException ree) {
-                LOGGER.warn("Executor shut down", ree);
-                break;
-            }
-        }
-    }
-
-    private void callListener(final BlueprintListener listener, final BlueprintEvent event) throws RejectedExecutionException {
-        try {
-            executor.invokeAny(Collections.<Callable<Void>>singleton(new Callable<Void>() {
-                public Void call() throws Exception {
-                    listener.blueprintEvent(event);
-                    return null;
-                }
-            }), 60L, TimeUnit.SECONDS);
-        } catch (InterruptedException ie) {
-            LOGGER.warn("Thread interrupted", ie);
-            Thread.currentThread().interrupt();
-        } catch (TimeoutException te) {
-            LOGGER.warn("Listener timed out, will be ignored", te);
-            listeners.remove(listener);
-        } catch (ExecutionException ee) {
-            LOGGER.warn("Listener caused an exception, will be ignored", ee);
-            listeners.remove(listener);
+        for (ListenerQueue queue : listeners.values()) {
+            queue.offer(event);
         }
     }
 
+    /**
+     * Stop tracking listeners. The executors are owned and shut down by the caller.
+     */
     void destroy() {
-        executor.shutdown();
-        // wait for the queued tasks to execute
-        try {
-            executor.awaitTermination(60, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            // ignore
-        }
+        watchdog.cancel(false);
         containerListenerTracker.close();
         // clean up the EventAdmin tracker if we're using that
         if (eventAdminListener != null) {
@@ -229,17 +306,272 @@ class BlueprintEventDispatcher implements BlueprintListener, SynchronousBundleLi
         if (BundleEvent.STOPPING == event.getType()) {
             states.remove(event.getBundle());
         }
+        if (eventAdminListener != null) {
+            int type = event.getType();
+            if (type == BundleEvent.UPDATED || type == BundleEvent.UNINSTALLED) {
+                eventAdminListener.bundleChanged(event.getBundle());
+            }
+        }
+    }
+
+    /**
+     * The latest event of a bundle and its replay event, which is created once and shared by all new listeners.
+     * The state of a bundle is updated in place, so that recording an event does not allocate.
+     */
+    private static class State {
+
+        private volatile BlueprintEvent event;
+        private volatile long compacted;
+        private volatile Replay replay;
+
+        State(BlueprintEvent event, boolean compact) {
+            update(event, compact);
+        }
+
+        void update(BlueprintEvent event, boolean compact) {
+            int type = event.getType();
+            if (compact && type != BlueprintEvent.GRACE_PERIOD && type != BlueprintEvent.WAITING
+                    && (event.getCause() != null || event.getDependencies() != null)) {
+                CompactEvent compactEvent = new CompactEvent(event, false);
+                this.compacted = Math.max(0, estimate(event) - estimate(compactEvent));
+                this.event = compactEvent;
+            } else {
+                this.compacted = 0;
+                this.event = event;
+            }
+        }
+
+        BlueprintEvent getReplay() {
+            BlueprintEvent current = event;
+            Replay result = replay;
+            if (result == null || result.source != current) {
+                // A concurrent replay may create a second instance, either is valid
+                if (current instanceof CompactEvent) {
+                    result = new Replay(current, new CompactEvent(current, true));
+                } else {
+                    result = new Replay(current, new BlueprintEvent(current, true));
+                }
+                replay = result;
+            }
+            return result.event;
+        }
+
+        private static long estimate(BlueprintEvent event) {
+            long size = 0;
+            String[] dependencies = event.getDependencies();
+            if (dependencies != null) {
+                size += 16 + 8 * dependencies.length;
+                for (String dependency : dependencies) {
+                    size += 40 + 2 * dependency.length();
+                }
+            }
+            for (Throwable cause = event.getCause(); cause != null; cause = cause.getCause()) {
+                String message = cause.getMessage();
+                size += 48 + (message != null ? 40 + 2 * message.length() : 0);
+                size += 96 * cause.getStackTrace().length;
+                if (cause.getCause() == cause) {
+                    break;
+                }
+            }
+            return size;
+        }
     }
 
+    /**
+     * The replay event of the event it was created from
+     */
+    private static class Replay {
+
+        private final BlueprintEvent source;
+        private final BlueprintEvent event;
+
+        Replay(BlueprintEvent source, BlueprintEvent event) {
+            this.source = source;
+            this.event = event;
+        }
+    }
+
+    /**
+     * A retained event that only keeps the type, timestamp and a short description of the cause
+     */
+    private static class CompactEvent extends BlueprintEvent {
+
+        private static final int MAX_CAUSE_LENGTH = 256;
+
+        private final long timestamp;
+        private final Throwable cause;
+        private final boolean replay;
+
+        CompactEvent(BlueprintEvent event, boolean replay) {
+            super(event.getType(), event.getBundle(), event.getExtenderBundle());
+            this.timestamp = event.getTimestamp();
+            this.cause = (event instanceof CompactEvent ? event.getCause() : CompactCause.create(event.getCause()));
+            this.replay = replay;
+        }
+
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public Throwable getCause() {
+            return cause;
+        }
+
+        @Override
+        public boolean isReplay() {
+            return replay;
+        }
+    }
+
+    /**
+     * The short description of a cause, without a stack trace
+     */
+    private static class CompactCause extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private CompactCause(String message) {
+            super(message);
+        }
+
+        static CompactCause create(Throwable cause) {
+            if (cause == null) {
+                return null;
+            }
+            String message = cause.getClass().getName() + ": " + cause.getMessage();
+            if (message.length() > CompactEvent.MAX_CAUSE_LENGTH) {
+                message = message.substring(0, CompactEvent.MAX_CAUSE_LENGTH);
+            }
+            return new CompactCause(message);
+        }
+
+        @Override
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * Posts blueprint events to the EventAdmin.
+     *
+     * The static bundle properties of an event are computed once per bundle. If a batch window is configured, 
+     * the events of a bundle are collected for that window and posted by a single task. Within the window a 
+     * WAITING or GRACE_PERIOD event is only dropped if it is immediately repeated, with the same type and the 
+     * same dependencies. A change of type or dependencies, i.e. the WAITING before a FAILURE, is always posted.
+     */
     private static class EventAdminListener implements BlueprintListener {
 
+        private final BundleContext context;
         private final ServiceTracker tracker;
+        private final AtomicInteger available = new AtomicInteger();
+        private final ScheduledExecutorService executor;
+        private final ExecutorService deliveryExecutor;
+        private final long window;
+        private final Map<Bundle, Map<String, Object>> bundleProperties = new ConcurrentHashMap<Bundle, Map<String, Object>>();
+        private final Map<Bundle, Map<String, Object>> extenderProperties = new ConcurrentHashMap<Bundle, Map<String, Object>>();
+        private final Map<Bundle, List<BlueprintEvent>> pending = new HashMap<Bundle, List<BlueprintEvent>>();
+
+        EventAdminListener(BundleContext context, ScheduledExecutorService executor, ExecutorService deliveryExecutor, long window) {
+            this.context = context;
+            this.executor = executor;
+            this.deliveryExecutor = deliveryExecutor;
+            this.window = window;
+            tracker = new ServiceTracker(context, EventAdmin.class.getName(), new ServiceTrackerCustomizer() {
+                public Object addingService(ServiceReference reference) {
+                    Object service = EventAdminListener.this.context.getService(reference);
+                    if (service != null) {
+                        available.incrementAndGet();
+                    }
+                    return service;
+                }
 
-        EventAdminListener(BundleContext context) {
-            tracker = new ServiceTracker(context, EventAdmin.class.getName(), null);
+                public void modifiedService(ServiceReference reference, Object service) {
+                }
+
+                public void removedService(ServiceReference reference, Object service) {
+                    available.decrementAndGet();
+                    EventAdminListener.this.context.ungetService(reference);
+                }
+            });
             tracker.open();
         }
 
+        /**
+         * True if an EventAdmin service is registered
+         */
+        boolean isAvailable() {
+            return available.get() > 0;
+        }
+
+        /**
+         * Post the event asynchronously, either on its own or as part of the bundle's batch
+         */
+        void publish(final BlueprintEvent event) {
+            try {
+                if (window <= 0) {
+                    deliveryExecutor.execute(new Runnable() {
+                        public void run() {
+                            blueprintEvent(event);
+                        }
+                    });
+                    return;
+                }
+
+                final Bundle bundle = event.getBundle();
+                synchronized (pending) {
+                    List<BlueprintEvent> batch = pending.get(bundle);
+                    if (batch == null) {
+                        batch = new ArrayList<BlueprintEvent>();
+                        pending.put(bundle, batch);
+                        executor.schedule(new Runnable() {
+                            public void run() {
+                                flush(bundle);
+                            }
+                        }, window, TimeUnit.MILLISECONDS);
+                    }
+                    if (batch.isEmpty() == false && isRepeated(batch.get(batch.size() - 1), event)) {
+                        batch.remove(batch.size() - 1);
+                    }
+                    batch.add(event);
+                }
+            } catch (RejectedExecutionException ree) {
+                LOGGER.warn("Executor shut down", ree);
+            }
+        }
+
+        /**
+         * True if the next event repeats an intermediate event, which it then supersedes
+         */
+        private static boolean isRepeated(BlueprintEvent event, BlueprintEvent next) {
+            int type = event.getType();
+            if (type != BlueprintEvent.WAITING && type != BlueprintEvent.GRACE_PERIOD) {
+                return false;
+            }
+            return type == next.getType() && Arrays.equals(event.getDependencies(), next.getDependencies());
+        }
+
+        private void flush(Bundle bundle) {
+            List<BlueprintEvent> batch;
+            synchronized (pending) {
+                batch = pending.remove(bundle);
+            }
+            if (batch != null) {
+                for (BlueprintEvent event : batch) {
+                    blueprintEvent(event);
+                }
+            }
+        }
+
+        /**
+         * Forget the cached properties of an updated or uninstalled bundle
+         */
+        void bundleChanged(Bundle bundle) {
+            bundleProperties.remove(bundle);
+            extenderProperties.remove(bundle);
+        }
+
         public void blueprintEvent(BlueprintEvent event) {
             EventAdmin eventAdmin = (EventAdmin) tracker.getService();
             if (eventAdmin == null) {
@@ -250,14 +582,8 @@ class BlueprintEventDispatcher implements BlueprintListener, SynchronousBundleLi
             props.put(EventConstants.TYPE, event.getType());
             props.put(EventConstants.EVENT, event);
             props.put(EventConstants.TIMESTAMP, event.getTimestamp());
-            props.put(EventConstants.BUNDLE, event.getBundle());
-            props.put(EventConstants.BUNDLE_SYMBOLICNAME, event.getBundle().getSymbolicName());
-            props.put(EventConstants.BUNDLE_ID, event.getBundle().getBundleId());
-            props.put(EventConstants.BUNDLE_VERSION, JavaUtils.getBundleVersion(event.getBundle()));
-            props.put(EventConstants.EXTENDER_BUNDLE, event.getExtenderBundle());
-            props.put(EventConstants.EXTENDER_BUNDLE_ID, event.getExtenderBundle().getBundleId());
-            props.put(EventConstants.EXTENDER_BUNDLE_SYMBOLICNAME, event.getExtenderBundle().getSymbolicName());
-            props.put(EventConstants.EXTENDER_BUNDLE_VERSION, JavaUtils.getBundleVersion(event.getExtenderBundle()));
+            putAll(props, getBundleProperties(event.getBundle()));
+            putAll(props, getExtenderProperties(event.getExtenderBundle()));
 
             if (event.getCause() != null) {
                 props.put(EventConstants.CAUSE, event.getCause());
@@ -294,6 +620,41 @@ class BlueprintEventDispatcher implements BlueprintListener, SynchronousBundleLi
             eventAdmin.postEvent(new Event(topic, props));
         }
 
+        private Map<String, Object> getBundleProperties(Bundle bundle) {
+            Map<String, Object> props = bundleProperties.get(bundle);
+            if (props == null) {
+                props = new HashMap<String, Object>();
+                props.put(EventConstants.BUNDLE, bundle);
+                props.put(EventConstants.BUNDLE_SYMBOLICNAME, bundle.getSymbolicName());
+                props.put(EventConstants.BUNDLE_ID, bundle.getBundleId());
+                props.put(EventConstants.BUNDLE_VERSION, JavaUtils.getBundleVersion(bundle));
+                bundleProperties.put(bundle, props);
+            }
+            return props;
+        }
+
+        private Map<String, Object> getExtenderProperties(Bundle extender) {
+            Map<String, Object> props = extenderProperties.get(extender);
+            if (props == null) {
+                props = new HashMap<String, Object>();
+                props.put(EventConstants.EXTENDER_BUNDLE, extender);
+                props.put(EventConstants.EXTENDER_BUNDLE_ID, extender.getBundleId());
+                props.put(EventConstants.EXTENDER_BUNDLE_SYMBOLICNAME, extender.getSymbolicName());
+                props.put(EventConstants.EXTENDER_BUNDLE_VERSION, JavaUtils.getBundleVersion(extender));
+                extenderProperties.put(extender, props);
+            }
+            return props;
+        }
+
+        private static void putAll(Dictionary<String, Object> target, Map<String, Object> source) {
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                Object value = entry.getValue();
+                if (value != null) {
+                    target.put(entry.getKey(), value);
+                }
+            }
+        }
+
         /**
          * Perform cleanup at Blueprint extender shutdown.
          */
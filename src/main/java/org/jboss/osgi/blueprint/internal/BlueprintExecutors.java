@@ -0,0 +1,287 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.osgi.blueprint.BlueprintProperties;
+import org.jboss.osgi.blueprint.ExecutorStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The thread pools of the Blueprint extender.
+ * 
+ * The creation pool runs the descriptor scans and container creations. The timer pool is handed to the 
+ * containers for their grace period and service timers, and runs the scheduled tasks of the event dispatcher. 
+ * The delayed tasks of the containers are kept on a {@link HashedWheelScheduler} in front of the timer pool.
+ * The delivery pool runs the BlueprintListener and EventAdmin callbacks. A full delivery pool rejects the task, 
+ * it never runs a callback on the thread that emits the event, which may be a container that holds its own locks.
+ * 
+ * In virtual thread mode the creation and delivery pools start a virtual thread per task, so that 
+ * blocked container creations and slow listeners do not hold on to platform threads. The timer pool 
+ * always uses platform threads, because the containers require a ScheduledExecutorService.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class BlueprintExecutors
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(BlueprintExecutors.class);
+
+   static final String CREATION = "creation";
+   static final String TIMER = "timer";
+   static final String DELIVERY = "delivery";
+
+   static final String REJECTION_ABORT = "abort";
+   static final String REJECTION_CALLER_RUNS = "caller-runs";
+   static final String REJECTION_DISCARD = "discard";
+
+   private final List<Pool> pools = new ArrayList<Pool>();
+   private final ExecutorService creation;
+   private final ScheduledThreadPoolExecutor timer;
+   private final ExecutorService delivery;
+   private final HashedWheelScheduler wheel;
+
+   BlueprintExecutors(BlueprintConfig config)
+   {
+      int processors = Runtime.getRuntime().availableProcessors();
+      int creationThreads = Math.max(1, config.getInteger(BlueprintProperties.BOOTSTRAP_THREADS, processors));
+      int creationQueue = config.getInteger(BlueprintProperties.BOOTSTRAP_QUEUE, 0);
+      int timerThreads = Math.max(1, config.getInteger(BlueprintProperties.TIMER_THREADS, 3));
+      int deliveryThreads = Math.max(1, config.getInteger(BlueprintProperties.DELIVERY_THREADS, Math.max(2, processors)));
+      int deliveryQueue = config.getInteger(BlueprintProperties.DELIVERY_QUEUE, 0);
+      String rejection = config.getString(BlueprintProperties.EXECUTOR_REJECTION, REJECTION_CALLER_RUNS);
+      boolean virtualThreads = config.getBoolean(BlueprintProperties.VIRTUAL_THREADS, false);
+      long timerTick = config.getLong(BlueprintProperties.TIMER_TICK, 100L);
+
+      VirtualThreadExecutor virtualCreation = null;
+      VirtualThreadExecutor virtualDelivery = null;
+      if (virtualThreads)
+      {
+         virtualCreation = VirtualThreadExecutor.create("jbosgi-blueprint-" + CREATION + "-");
+         virtualDelivery = VirtualThreadExecutor.create("jbosgi-blueprint-" + DELIVERY + "-");
+         if (virtualCreation == null || virtualDelivery == null)
+         {
+            log.warn("Virtual threads are not supported by this JVM, using platform threads");
+            virtualThreads = false;
+         }
+      }
+
+      Pool pool = new Pool(CREATION, rejection);
+      if (virtualThreads)
+         creation = virtualCreation;
+      else
+         creation = new ThreadPoolExecutor(creationThreads, creationThreads, 60L, TimeUnit.SECONDS, createQueue(creationQueue), pool, pool);
+      pool.executor = creation;
+      pools.add(pool);
+
+      // The queue of a scheduled pool is unbounded, it only rejects after shutdown
+      pool = new Pool(TIMER, REJECTION_ABORT);
+      timer = new ScheduledThreadPoolExecutor(timerThreads, pool, pool);
+      pool.executor = timer;
+      pools.add(pool);
+      wheel = (timerTick > 0 ? new HashedWheelScheduler(timer, timerTick, 512) : null);
+
+      pool = new Pool(DELIVERY, REJECTION_ABORT);
+      if (virtualThreads)
+         delivery = virtualDelivery;
+      else
+         delivery = new ThreadPoolExecutor(deliveryThreads, deliveryThreads, 60L, TimeUnit.SECONDS, createQueue(deliveryQueue), pool, pool);
+      pool.executor = delivery;
+      pools.add(pool);
+
+      if (virtualThreads)
+         log.debug("Executors: creation=virtual, timer=" + timerThreads + ", delivery=virtual");
+      else
+         log.debug("Executors: creation=" + creationThreads + ", timer=" + timerThreads + ", delivery=" + deliveryThreads + ", rejection=" + rejection);
+   }
+
+   private static BlockingQueue<Runnable> createQueue(int capacity)
+   {
+      if (capacity > 0)
+         return new ArrayBlockingQueue<Runnable>(capacity);
+      else
+         return new LinkedBlockingQueue<Runnable>();
+   }
+
+   ExecutorService getCreation()
+   {
+      return creation;
+   }
+
+   ScheduledExecutorService getTimer()
+   {
+      return timer;
+   }
+
+   /**
+    * The scheduler that is handed to the containers, which is the timer pool if there is no wheel
+    */
+   ScheduledExecutorService getContainerTimer()
+   {
+      return wheel != null ? wheel : timer;
+   }
+
+   ExecutorService getDelivery()
+   {
+      return delivery;
+   }
+
+   /**
+    * The number of tasks that wait for a thread in any of the pools
+    */
+   int getQueueDepth()
+   {
+      int depth = 0;
+      for (Pool pool : pools)
+      {
+         if (pool.executor instanceof ThreadPoolExecutor)
+            depth += ((ThreadPoolExecutor)pool.executor).getQueue().size();
+      }
+      return depth;
+   }
+
+   List<ExecutorStatistics> getStatistics()
+   {
+      List<ExecutorStatistics> result = new ArrayList<ExecutorStatistics>();
+      for (Pool pool : pools)
+         result.add(pool.getStatistics());
+      return result;
+   }
+
+   /**
+    * Shutdown the pools and wait for the submitted tasks to complete
+    */
+   void shutdown(long timeout)
+   {
+      if (wheel != null)
+         wheel.shutdown();
+
+      for (Pool pool : pools)
+         pool.executor.shutdown();
+
+      long deadline = System.currentTimeMillis() + timeout;
+      try
+      {
+         for (Pool pool : pools)
+         {
+            long remaining = deadline - System.currentTimeMillis();
+            if (pool.executor.awaitTermination(Math.max(0, remaining), TimeUnit.MILLISECONDS) == false)
+            {
+               log.warn("Executor did not terminate: " + pool.name);
+               pool.executor.shutdownNow();
+            }
+         }
+      }
+      catch (InterruptedException ex)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Names the threads of a pool and counts the tasks that it rejects 
+    */
+   private static class Pool implements ThreadFactory, RejectedExecutionHandler
+   {
+      private final String name;
+      private final RejectedExecutionHandler policy;
+      private final AtomicInteger threadCount = new AtomicInteger();
+      private final AtomicLong rejected = new AtomicLong();
+      private ExecutorService executor;
+
+      Pool(String name, String rejection)
+      {
+         this.name = name;
+         this.policy = getPolicy(name, rejection);
+      }
+
+      private static RejectedExecutionHandler getPolicy(String name, String rejection)
+      {
+         if (REJECTION_ABORT.equals(rejection))
+            return new ThreadPoolExecutor.AbortPolicy();
+         // A discarded creation would leave its container waiting forever
+         if (REJECTION_DISCARD.equals(rejection))
+            log.warn("Rejection policy " + REJECTION_DISCARD + " is not supported for " + name + ", using " + REJECTION_CALLER_RUNS);
+         else if (REJECTION_CALLER_RUNS.equals(rejection) == false)
+            log.warn("Invalid rejection policy for " + name + ": " + rejection + ", using " + REJECTION_CALLER_RUNS);
+
+         return new ThreadPoolExecutor.CallerRunsPolicy();
+      }
+
+      public Thread newThread(Runnable runnable)
+      {
+         Thread thread = new Thread(runnable, "jbosgi-blueprint-" + name + "-" + threadCount.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      }
+
+      public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor)
+      {
+         if (executor.isShutdown() == false)
+         {
+            rejected.incrementAndGet();
+            log.debug("Task rejected by " + name + " pool, applying: " + policy.getClass().getSimpleName());
+         }
+         policy.rejectedExecution(runnable, executor);
+      }
+
+      ExecutorStatistics getStatistics()
+      {
+         if (executor instanceof VirtualThreadExecutor)
+         {
+            // A virtual thread per task, nothing ever waits in a queue
+            VirtualThreadExecutor virtual = (VirtualThreadExecutor)executor;
+            int active = virtual.getActiveCount();
+            return new ExecutorStatistics(name, active, active, virtual.getLargestPoolSize(), Integer.MAX_VALUE, 0, 0, virtual.getCompletedTaskCount(), 0);
+         }
+
+         ThreadPoolExecutor executor = (ThreadPoolExecutor)this.executor;
+         BlockingQueue<Runnable> queue = executor.getQueue();
+         int depth = queue.size();
+         int remaining = queue.remainingCapacity();
+         int capacity = (remaining == Integer.MAX_VALUE ? Integer.MAX_VALUE : depth + remaining);
+         
+         // A scheduled pool never grows beyond its core size
+         int maximum = (executor instanceof ScheduledThreadPoolExecutor ? executor.getCorePoolSize() : executor.getMaximumPoolSize());
+         return new ExecutorStatistics(name, executor.getPoolSize(), executor.getActiveCount(), executor.getLargestPoolSize(), maximum, depth, capacity,
+               executor.getCompletedTaskCount(), rejected.get());
+      }
+   }
+}
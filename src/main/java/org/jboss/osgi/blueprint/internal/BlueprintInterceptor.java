@@ -23,19 +23,13 @@ package org.jboss.osgi.blueprint.internal;
 
 //$Id$
 
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
-import java.util.StringTokenizer;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 
-import org.apache.aries.blueprint.BlueprintConstants;
 import org.apache.aries.blueprint.container.BlueprintContainerImpl;
 import org.apache.aries.blueprint.container.NamespaceHandlerRegistry;
 import org.apache.aries.blueprint.namespace.NamespaceHandlerRegistryImpl;
+import org.jboss.osgi.blueprint.BlueprintProperties;
 import org.jboss.osgi.deployment.interceptor.AbstractLifecycleInterceptor;
 import org.jboss.osgi.deployment.interceptor.InvocationContext;
 import org.jboss.osgi.deployment.interceptor.LifecycleInterceptor;
@@ -56,28 +50,100 @@ public class BlueprintInterceptor extends AbstractLifecycleInterceptor implement
    // Provide logging
    private Logger log = LoggerFactory.getLogger(BlueprintInterceptor.class);
    
-   private Map<Bundle, BlueprintContainerImpl> containers;
+   /** The maximum time in milliseconds the shutdown waits for running container creations */
+   private static final long BOOTSTRAP_SHUTDOWN_TIMEOUT = 10000L;
+   
+   private ContainerRegistry containers;
    private BlueprintEventDispatcher eventDispatcher;
    private NamespaceHandlerRegistry handlers;
-   private ScheduledExecutorService executors;
+   private BlueprintExecutors executors;
+   private BootstrapScheduler bootstrap;
+   private DescriptorCache descriptorCache;
+   private DescriptorIndex descriptorIndex;
+   private LazyActivator lazyActivator;
+   private boolean lazyByDefault;
+   private long shutdownTimeout;
+   private long shutdownBudget;
+   private ContainerMetrics metrics;
+   private BootTracer tracer;
+   private ReferenceIndex referenceIndex;
+   private ContainerReloader reloader;
+   private boolean batchRegistrations;
    
    public void start(BundleContext context)
    {
-      containers = new HashMap<Bundle, BlueprintContainerImpl>();
+      BlueprintConfig config = new BlueprintConfig(context);
+      boolean cacheDescriptors = config.getBoolean(BlueprintProperties.DESCRIPTOR_CACHE, true);
+      int listenerQueueCapacity = config.getInteger(BlueprintProperties.LISTENER_QUEUE_CAPACITY, 1000);
+      long listenerTimeout = config.getLong(BlueprintProperties.LISTENER_TIMEOUT, 60000L);
+      long eventAdminWindow = config.getLong(BlueprintProperties.EVENTADMIN_BATCH_WINDOW, 0L);
+      long activationTimeout = config.getLong(BlueprintProperties.ACTIVATION_TIMEOUT, 30000L);
+      shutdownTimeout = config.getLong(BlueprintProperties.SHUTDOWN_TIMEOUT, 30000L);
+      shutdownBudget = config.getLong(BlueprintProperties.SHUTDOWN_BUDGET, 5000L);
+      boolean preloadClasses = config.getBoolean(BlueprintProperties.PRELOAD_CLASSES, false);
+      boolean trace = config.getBoolean(BlueprintProperties.TRACE, false);
+      boolean reload = config.getBoolean(BlueprintProperties.RELOAD, false);
+      batchRegistrations = config.getBoolean(BlueprintProperties.BATCH_REGISTRATIONS, false);
+      boolean lean = config.getBoolean(BlueprintProperties.LEAN, false);
+      lazyByDefault = BlueprintProperties.ACTIVATION_LAZY.equals(config.getString(BlueprintProperties.ACTIVATION, null));
+      
+      descriptorCache = new DescriptorCache(cacheDescriptors ? context.getDataFile("descriptor-cache") : null);
+      context.addBundleListener(descriptorCache);
+      
+      descriptorIndex = new DescriptorIndex();
+      context.addBundleListener(descriptorIndex);
+      
+      containers = new ContainerRegistry();
+      reloader = (reload ? new ContainerReloader() : null);
+      referenceIndex = new ReferenceIndex();
+      context.addServiceListener(referenceIndex);
       handlers = new NamespaceHandlerRegistryImpl(context);
-      executors = Executors.newScheduledThreadPool(3);
-      eventDispatcher = new BlueprintEventDispatcher(context, executors);
+      executors = new BlueprintExecutors(config);
+      eventDispatcher = new BlueprintEventDispatcher(context, executors.getTimer(), executors.getDelivery(), listenerQueueCapacity, listenerTimeout, eventAdminWindow, lean);
+      
+      metrics = new ContainerMetrics();
+      eventDispatcher.addExtenderListener(metrics);
+      
+      if (lean)
+         eventDispatcher.addExtenderListener(new ContainerTrimmer(containers, metrics));
+      
+      if (trace)
+      {
+         tracer = new BootTracer(context);
+         eventDispatcher.addExtenderListener(tracer);
+      }
+      
+      BootstrapScheduler.ContainerFactory factory = new BootstrapScheduler.ContainerFactory()
+      {
+         public void createContainer(Bundle bundle, List<Object> pathList)
+         {
+            BlueprintInterceptor.this.createContainer(bundle, pathList);
+         }
+      };
+      BeanClassPreloader preloader = (preloadClasses ? new BeanClassPreloader() : null);
+      bootstrap = new BootstrapScheduler(executors.getCreation(), descriptorCache, factory, preloader);
+      eventDispatcher.addExtenderListener(bootstrap);
+      context.addBundleListener(bootstrap);
+      
+      lazyActivator = new LazyActivator(bootstrap, activationTimeout);
+      eventDispatcher.addExtenderListener(lazyActivator);
       
       context.registerService(LifecycleInterceptor.class.getName(), this, null);
    }
    
    public void stop(BundleContext context)
    {
-      for (Bundle bundle : containers.keySet())
-      {
-         BlueprintContainerImpl blueprintContainer = containers.remove(bundle);
-         blueprintContainer.destroy();
-      }
+      context.removeBundleListener(descriptorCache);
+      context.removeBundleListener(descriptorIndex);
+      context.removeBundleListener(bootstrap);
+      ShutdownCoordinator coordinator = new ShutdownCoordinator(shutdownTimeout, shutdownBudget);
+      bootstrap.shutdown(Math.min(BOOTSTRAP_SHUTDOWN_TIMEOUT, coordinator.getRemaining()));
+      
+      coordinator.destroyContainers(containers.removeAll());
+      context.removeServiceListener(referenceIndex);
+      
+      eventDispatcher.destroy();
+      executors.shutdown(coordinator.getRemaining());
    }
 
    public void invoke(int state, InvocationContext context) throws LifecycleInterceptorException
@@ -85,62 +151,195 @@ public class BlueprintInterceptor extends AbstractLifecycleInterceptor implement
       Bundle bundle = context.getBundle();
       if (state == Bundle.STARTING)
       {
-         // If a Bundle-Blueprint manifest header is defined, then this header contains a list of paths. 
-         // If this header is not defined, then resources ending in .xml in the bundle’s
-         // OSGI-INF/blueprint directory must be used. These are the resources that
-         // would be found by calling the Bundle findEntries("OSGI-INF/blueprint", "*.xml", false) method.
-
-         List<Object> pathList = new ArrayList<Object>();
-
-         String descriptorPaths = (String)bundle.getHeaders().get(BlueprintConstants.BUNDLE_BLUEPRINT_HEADER);
-         if (descriptorPaths != null)
-         {
-            StringTokenizer tokenizer = new StringTokenizer(descriptorPaths, ",");
-            while (tokenizer.hasMoreTokens())
-            {
-               String path = tokenizer.nextToken();
-               pathList.add(path.trim());
-            }
-         }
-         else
-         {
-            Enumeration<?> foundEntries = bundle.findEntries("OSGI-INF/blueprint", "*.xml", false);
-            if (foundEntries != null)
-            {
-               while (foundEntries.hasMoreElements())
-               {
-                  String path = foundEntries.nextElement().toString();
-                  int index = path.indexOf("OSGI-INF/blueprint");
-                  pathList.add(path.substring(index));
-               }
-            }
-         }
-
+         List<Object> pathList = descriptorIndex.getDescriptorPaths(bundle);
          if (pathList.isEmpty() == false)
          {
-            log.debug("Create blueprint container");
-            ClassLoader tccl = Thread.currentThread().getContextClassLoader();
-            try
-            {
-               Thread.currentThread().setContextClassLoader(BlueprintActivator.class.getClassLoader());
-               BlueprintContainerImpl blueprintContainer = new BlueprintContainerImpl(bundle.getBundleContext(), context.getBundle(), eventDispatcher, handlers, executors, pathList);
-               containers.put(bundle, blueprintContainer);
-               blueprintContainer.schedule();
-            }
-            finally
-            {
-               Thread.currentThread().setContextClassLoader(tccl);
-            }
+            if (isLazyActivation(bundle) && registerLazyActivation(bundle, pathList))
+               return;
+            
+            log.debug("Schedule blueprint container");
+            bootstrap.schedule(bundle, pathList);
          }
       }
       else if (state == Bundle.STOPPING)
       {
+         lazyActivator.cancel(bundle);
+         bootstrap.cancel(bundle);
+         
          BlueprintContainerImpl blueprintContainer = containers.remove(bundle);
          if (blueprintContainer != null)
          {
             log.debug("Stop blueprint container");
             blueprintContainer.destroy();
          }
+         
+         // The framework drops the listeners of a stopped bundle, so does the index
+         referenceIndex.removeAll(bundle);
+         
+         if (reloader != null)
+            reloader.remove(bundle);
+      }
+   }
+
+   /**
+    * Reload the container of the given bundle, if its descriptors changed
+    * @return the ids of the changed components, which is empty if the container was not reloaded
+    */
+   List<String> reload(Bundle bundle) throws IOException
+   {
+      if (reloader == null)
+         throw new IllegalStateException("Reload is not enabled");
+      if (containers.getContainer(bundle.getBundleId()) == null)
+         throw new IllegalArgumentException("No blueprint container for: " + bundle);
+
+      descriptorIndex.invalidate(bundle);
+      List<Object> pathList = descriptorIndex.getDescriptorPaths(bundle);
+      List<String> changed = reloader.diff(bundle, pathList);
+      if (changed.isEmpty())
+      {
+         log.debug("Blueprint descriptors unchanged: " + bundle);
+         return changed;
+      }
+
+      log.info("Reload blueprint container " + bundle + ", changed components: " + changed);
+      descriptorCache.invalidate(bundle);
+      BlueprintContainerImpl blueprintContainer = containers.remove(bundle);
+      if (blueprintContainer != null)
+      {
+         blueprintContainer.destroy();
+         referenceIndex.removeAll(bundle);
+      }
+      if (isStartingOrActive(bundle) && pathList.isEmpty() == false)
+         bootstrap.schedule(bundle, pathList);
+
+      return changed;
+   }
+
+   private void recordDigests(Bundle bundle, List<Object> pathList)
+   {
+      try
+      {
+         reloader.record(bundle, pathList);
+      }
+      catch (IOException ex)
+      {
+         // The container reports the broken descriptor when it parses it
+         log.debug("Cannot digest blueprint descriptors: " + bundle, ex);
+      }
+   }
+
+   private boolean isLazyActivation(Bundle bundle)
+   {
+      String activation = (String)bundle.getHeaders().get(BlueprintProperties.ACTIVATION_HEADER);
+      if (activation != null)
+         return BlueprintProperties.ACTIVATION_LAZY.equals(activation.trim());
+      
+      return lazyByDefault;
+   }
+
+   private boolean registerLazyActivation(Bundle bundle, List<Object> pathList)
+   {
+      try
+      {
+         DescriptorInfo info = descriptorCache.getDescriptorInfo(bundle, pathList);
+         return lazyActivator.register(bundle, pathList, info);
+      }
+      catch (Exception ex)
+      {
+         log.warn("Cannot register lazy blueprint container, activating eagerly: " + bundle, ex);
+         return false;
+      }
+   }
+
+   private static boolean isStartingOrActive(Bundle bundle)
+   {
+      int bundleState = bundle.getState();
+      return bundleState == Bundle.STARTING || bundleState == Bundle.ACTIVE;
+   }
+
+   ContainerRegistry getContainers()
+   {
+      return containers;
+   }
+
+   ContainerMetrics getMetrics()
+   {
+      return metrics;
+   }
+
+   /**
+    * Get the boot tracer
+    * @return null if tracing is disabled
+    */
+   BootTracer getTracer()
+   {
+      return tracer;
+   }
+
+   BootstrapScheduler getBootstrap()
+   {
+      return bootstrap;
+   }
+
+   BlueprintExecutors getExecutors()
+   {
+      return executors;
+   }
+
+   DescriptorCache getDescriptorCache()
+   {
+      return descriptorCache;
+   }
+
+   BlueprintEventDispatcher getEventDispatcher()
+   {
+      return eventDispatcher;
+   }
+
+   /**
+    * Create the container on the calling bootstrap thread. 
+    * 
+    * The first container run parses the descriptors and creates the components if the mandatory 
+    * references are already available. Later runs are scheduled on the container executor. 
+    */
+   void createContainer(Bundle bundle, List<Object> pathList)
+   {
+      log.debug("Create blueprint container");
+      ClassLoader tccl = Thread.currentThread().getContextClassLoader();
+      try
+      {
+         Thread.currentThread().setContextClassLoader(BlueprintActivator.class.getClassLoader());
+         // The bundle may have been stopped while the container was held back
+         if (isStartingOrActive(bundle) == false)
+            return;
+         
+         if (reloader != null)
+            recordDigests(bundle, pathList);
+         
+         ContainerBundleContext containerContext = new ContainerBundleContext(bundle.getBundleContext(), referenceIndex, batchRegistrations ? metrics : null);
+         BlueprintContainerImpl blueprintContainer = new BlueprintContainerImpl(containerContext, bundle, eventDispatcher, handlers, executors.getContainerTimer(), pathList);
+         if (containers.add(bundle, blueprintContainer) == false)
+         {
+            log.warn("Blueprint container already exists for: " + bundle);
+            return;
+         }
+         
+         // A concurrent STOPPING may have missed the container, in which case it is ours to remove
+         if (isStartingOrActive(bundle) == false)
+         {
+            if (containers.remove(bundle, blueprintContainer))
+            {
+               blueprintContainer.destroy();
+               referenceIndex.removeAll(bundle);
+            }
+            return;
+         }
+         
+         blueprintContainer.run();
+      }
+      finally
+      {
+         Thread.currentThread().setContextClassLoader(tccl);
       }
    }
 }
\ No newline at end of file
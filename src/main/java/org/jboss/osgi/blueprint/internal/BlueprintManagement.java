@@ -0,0 +1,262 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.jboss.osgi.blueprint.BlueprintService;
+import org.jboss.osgi.blueprint.BlueprintServiceMBean;
+import org.jboss.osgi.blueprint.ContainerStatistics;
+import org.jboss.osgi.blueprint.CriticalPathEntry;
+import org.jboss.osgi.blueprint.ExecutorStatistics;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.util.tracker.ServiceTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers the {@link BlueprintServiceMBean} with every MBeanServer service.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class BlueprintManagement implements BlueprintServiceMBean
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(BlueprintManagement.class);
+
+   private static final String[] ITEM_NAMES = new String[] { "bundleId", "symbolicName", "state", "stateTimestamp", "creationLatency",
+         "gracePeriodWait", "unsatisfiedReferences", "scanTime", "holdTime", "batchedServices", "registrationTime",
+         "heapSaved" };
+
+   private static final OpenType[] ITEM_TYPES = new OpenType[] { SimpleType.LONG, SimpleType.STRING, SimpleType.STRING, SimpleType.LONG,
+         SimpleType.LONG, SimpleType.LONG, SimpleType.INTEGER, SimpleType.LONG, SimpleType.LONG, SimpleType.INTEGER,
+         SimpleType.LONG, SimpleType.LONG };
+
+   private static final String[] EXECUTOR_ITEM_NAMES = new String[] { "name", "poolSize", "activeThreads", "largestPoolSize", "maximumPoolSize",
+         "queueDepth", "queueCapacity", "completedTasks", "rejectedTasks" };
+
+   private static final OpenType[] EXECUTOR_ITEM_TYPES = new OpenType[] { SimpleType.STRING, SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.INTEGER,
+         SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.LONG, SimpleType.LONG };
+
+   private static final String[] WAIT_ITEM_NAMES = new String[] { "bundleId", "symbolicName", "filter", "waitTime" };
+
+   private static final OpenType[] WAIT_ITEM_TYPES = new OpenType[] { SimpleType.LONG, SimpleType.STRING, SimpleType.STRING, SimpleType.LONG };
+
+   private final BlueprintService service;
+   private ServiceTracker tracker;
+
+   BlueprintManagement(BlueprintService service)
+   {
+      if (service == null)
+         throw new IllegalArgumentException("Null service");
+
+      this.service = service;
+   }
+
+   void start(BundleContext context)
+   {
+      tracker = new ServiceTracker(context, MBeanServer.class.getName(), null)
+      {
+         @Override
+         public Object addingService(ServiceReference reference)
+         {
+            MBeanServer server = (MBeanServer)super.addingService(reference);
+            try
+            {
+               StandardMBean mbean = new StandardMBean(BlueprintManagement.this, BlueprintServiceMBean.class);
+               server.registerMBean(mbean, new ObjectName(OBJECT_NAME));
+            }
+            catch (Exception ex)
+            {
+               log.warn("Cannot register: " + OBJECT_NAME, ex);
+            }
+            return server;
+         }
+
+         @Override
+         public void removedService(ServiceReference reference, Object tracked)
+         {
+            unregister((MBeanServer)tracked);
+            super.removedService(reference, tracked);
+         }
+      };
+      tracker.open();
+   }
+
+   void stop()
+   {
+      if (tracker != null)
+      {
+         tracker.close();
+         tracker = null;
+      }
+   }
+
+   private void unregister(MBeanServer server)
+   {
+      try
+      {
+         ObjectName oname = new ObjectName(OBJECT_NAME);
+         if (server.isRegistered(oname))
+            server.unregisterMBean(oname);
+      }
+      catch (Exception ex)
+      {
+         log.warn("Cannot unregister: " + OBJECT_NAME, ex);
+      }
+   }
+
+   public long getDescriptorCacheHits()
+   {
+      return service.getDescriptorCacheHits();
+   }
+
+   public long getDescriptorCacheMisses()
+   {
+      return service.getDescriptorCacheMisses();
+   }
+
+   public long getCompiledDescriptors()
+   {
+      return service.getCompiledDescriptors();
+   }
+
+   public int getExecutorQueueDepth()
+   {
+      return service.getExecutorQueueDepth();
+   }
+
+   public int getContainerCount()
+   {
+      return service.getContainerStatistics().size();
+   }
+
+   public TabularData getContainers()
+   {
+      try
+      {
+         CompositeType rowType = new CompositeType("ContainerStatistics", "The statistics of a Blueprint container", ITEM_NAMES, ITEM_NAMES, ITEM_TYPES);
+         TabularType tableType = new TabularType("Containers", "The statistics of all Blueprint containers", rowType, new String[] { "bundleId" });
+         TabularDataSupport table = new TabularDataSupport(tableType);
+         List<ContainerStatistics> statsList = service.getContainerStatistics();
+         for (ContainerStatistics stats : statsList)
+         {
+            Object[] values = new Object[] { stats.getBundleId(), stats.getSymbolicName(), stats.getState(), stats.getStateTimestamp(),
+                  stats.getCreationLatency(), stats.getGracePeriodWait(), stats.getUnsatisfiedReferences(), stats.getScanTime(), stats.getHoldTime(),
+                  stats.getBatchedServices(), stats.getRegistrationTime(), stats.getHeapSaved() };
+            CompositeData row = new CompositeDataSupport(rowType, ITEM_NAMES, values);
+            table.put(row);
+         }
+         return table;
+      }
+      catch (OpenDataException ex)
+      {
+         throw new IllegalStateException("Cannot create container statistics", ex);
+      }
+   }
+
+   public TabularData getExecutors()
+   {
+      try
+      {
+         CompositeType rowType = new CompositeType("ExecutorStatistics", "The utilization of a thread pool", EXECUTOR_ITEM_NAMES, EXECUTOR_ITEM_NAMES,
+               EXECUTOR_ITEM_TYPES);
+         TabularType tableType = new TabularType("Executors", "The utilization of the thread pools", rowType, new String[] { "name" });
+         TabularDataSupport table = new TabularDataSupport(tableType);
+         for (ExecutorStatistics stats : service.getExecutorStatistics())
+         {
+            Object[] values = new Object[] { stats.getName(), stats.getPoolSize(), stats.getActiveThreads(), stats.getLargestPoolSize(),
+                  stats.getMaximumPoolSize(), stats.getQueueDepth(), stats.getQueueCapacity(), stats.getCompletedTasks(), stats.getRejectedTasks() };
+            table.put(new CompositeDataSupport(rowType, EXECUTOR_ITEM_NAMES, values));
+         }
+         return table;
+      }
+      catch (OpenDataException ex)
+      {
+         throw new IllegalStateException("Cannot create executor statistics", ex);
+      }
+   }
+
+   public TabularData getDependencyWaits()
+   {
+      try
+      {
+         CompositeType rowType = new CompositeType("DependencyWait", "The time a container waited for a dependency", WAIT_ITEM_NAMES, WAIT_ITEM_NAMES,
+               WAIT_ITEM_TYPES);
+         TabularType tableType = new TabularType("DependencyWaits", "The time the containers waited for their dependencies", rowType, new String[] {
+               "bundleId", "filter" });
+         TabularDataSupport table = new TabularDataSupport(tableType);
+         for (ContainerStatistics stats : service.getContainerStatistics())
+         {
+            for (Map.Entry<String, Long> entry : stats.getDependencyWaits().entrySet())
+            {
+               Object[] values = new Object[] { stats.getBundleId(), stats.getSymbolicName(), entry.getKey(), entry.getValue() };
+               table.put(new CompositeDataSupport(rowType, WAIT_ITEM_NAMES, values));
+            }
+         }
+         return table;
+      }
+      catch (OpenDataException ex)
+      {
+         throw new IllegalStateException("Cannot create dependency waits", ex);
+      }
+   }
+
+   public String[] getCriticalPath()
+   {
+      List<CriticalPathEntry> path = service.getCriticalPath();
+      String[] result = new String[path.size()];
+      for (int i = 0; i < result.length; i++)
+         result[i] = path.get(i).toString();
+      return result;
+   }
+
+   public String writeBootTrace() throws IOException
+   {
+      return service.writeBootTrace().getAbsolutePath();
+   }
+
+   public String[] reload(long bundleId) throws IOException
+   {
+      List<String> changed = service.reload(bundleId);
+      return changed.toArray(new String[changed.size()]);
+   }
+}
@@ -0,0 +1,184 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.osgi.blueprint.BlueprintService;
+import org.jboss.osgi.blueprint.ContainerStatistics;
+import org.jboss.osgi.blueprint.CriticalPathEntry;
+import org.jboss.osgi.blueprint.ExecutorStatistics;
+import org.jboss.osgi.blueprint.ListenerStatistics;
+import org.osgi.framework.Bundle;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+
+/**
+ * The {@link BlueprintService} implementation
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class BlueprintServiceImpl implements BlueprintService
+{
+   private final BlueprintInterceptor interceptor;
+
+   /**
+    * Create the service
+    * @param interceptor the lifecycle interceptor, or null if the Aries extender creates the containers
+    */
+   BlueprintServiceImpl(BlueprintInterceptor interceptor)
+   {
+      this.interceptor = interceptor;
+   }
+
+   public long getDescriptorCacheHits()
+   {
+      return interceptor != null ? interceptor.getDescriptorCache().getHits() : 0;
+   }
+
+   public long getDescriptorCacheMisses()
+   {
+      return interceptor != null ? interceptor.getDescriptorCache().getMisses() : 0;
+   }
+
+   public long getCompiledDescriptors()
+   {
+      return interceptor != null ? interceptor.getDescriptorCache().getCompiled() : 0;
+   }
+
+   public List<ListenerStatistics> getListenerStatistics()
+   {
+      if (interceptor == null)
+         return Collections.emptyList();
+
+      return interceptor.getEventDispatcher().getListenerStatistics();
+   }
+
+   public List<ContainerStatistics> getContainerStatistics()
+   {
+      if (interceptor == null)
+         return Collections.emptyList();
+
+      List<ContainerStatistics> result = new ArrayList<ContainerStatistics>();
+      for (Bundle bundle : interceptor.getMetrics().getBundles())
+      {
+         ContainerStatistics stats = getContainerStatistics(bundle);
+         if (stats != null)
+            result.add(stats);
+      }
+      return result;
+   }
+
+   public ContainerStatistics getContainerStatistics(long bundleId)
+   {
+      if (interceptor == null)
+         return null;
+
+      for (Bundle bundle : interceptor.getMetrics().getBundles())
+      {
+         if (bundle.getBundleId() == bundleId)
+            return getContainerStatistics(bundle);
+      }
+      return null;
+   }
+
+   public int getExecutorQueueDepth()
+   {
+      return interceptor != null ? interceptor.getExecutors().getQueueDepth() : 0;
+   }
+
+   public List<ExecutorStatistics> getExecutorStatistics()
+   {
+      if (interceptor == null)
+         return Collections.emptyList();
+
+      return interceptor.getExecutors().getStatistics();
+   }
+
+   public List<CriticalPathEntry> getCriticalPath()
+   {
+      if (interceptor == null || interceptor.getTracer() == null)
+         return Collections.emptyList();
+
+      return interceptor.getTracer().getCriticalPath();
+   }
+
+   public File writeBootTrace() throws IOException
+   {
+      if (interceptor == null || interceptor.getTracer() == null)
+         throw new IllegalStateException("Boot tracing is not enabled");
+
+      return interceptor.getTracer().writeTraceFile();
+   }
+
+   public List<String> reload(long bundleId) throws IOException
+   {
+      if (interceptor == null)
+         throw new IllegalStateException("Reload is not supported by the Aries extender");
+
+      for (Bundle bundle : interceptor.getContainers().getBundles())
+      {
+         if (bundle.getBundleId() == bundleId)
+            return interceptor.reload(bundle);
+      }
+      throw new IllegalArgumentException("No blueprint container for bundle: " + bundleId);
+   }
+
+   private ContainerStatistics getContainerStatistics(Bundle bundle)
+   {
+      ContainerMetrics.Record record = interceptor.getMetrics().getRecord(bundle);
+      if (record == null)
+         return null;
+
+      String state = null;
+      long stateTimestamp = 0;
+      BlueprintEvent event = interceptor.getEventDispatcher().getState(bundle);
+      if (event != null)
+      {
+         state = BlueprintEventDispatcher.getEventType(event.getType());
+         stateTimestamp = event.getTimestamp();
+      }
+
+      long scanTime = -1;
+      long holdTime = -1;
+      BootstrapScheduler.Timing timing = interceptor.getBootstrap().getTiming(bundle.getBundleId());
+      if (timing != null)
+      {
+         scanTime = timing.getScanMillis();
+         holdTime = timing.getHoldMillis();
+      }
+
+      long heapSaved = record.getTrimmedBytes() + interceptor.getEventDispatcher().getCompactedBytes(bundle);
+
+      long bundleId = bundle.getBundleId();
+      String symbolicName = bundle.getSymbolicName();
+      return new ContainerStatistics(bundleId, symbolicName, state, stateTimestamp, record.getCreationLatency(), record.getGracePeriodWait(),
+            record.getUnsatisfiedReferences(), scanTime, holdTime, record.getBatchedServices(), record.getRegistrationTime(),
+            heapSaved, record.getDependencyWaits());
+   }
+}
@@ -0,0 +1,342 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.osgi.blueprint.CriticalPathEntry;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+import org.osgi.service.blueprint.container.BlueprintListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Traces the creation of the Blueprint containers from their blueprint events.
+ * 
+ * A container is traced from CREATING to CREATED or FAILURE. Every dependency filter that a 
+ * GRACE_PERIOD event reports is traced as a wait, until a later event no longer reports it. 
+ * When a wait ends, the bundle that registered the matching service is recorded as its provider.
+ * 
+ * The critical path starts at the container that was created last and follows the wait that 
+ * ended last back to its provider, until it reaches a container that did not wait.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class BootTracer implements BlueprintListener
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(BootTracer.class);
+
+   /** The name of the trace file in the data area of the extender bundle */
+   static final String TRACE_FILE = "boot-trace.json";
+
+   private final BundleContext context;
+   private final Map<Long, Trace> traces = new LinkedHashMap<Long, Trace>();
+
+   BootTracer(BundleContext context)
+   {
+      if (context == null)
+         throw new IllegalArgumentException("Null context");
+
+      this.context = context;
+   }
+
+   public void blueprintEvent(BlueprintEvent event)
+   {
+      if (event.isReplay())
+         return;
+
+      long bundleId = event.getBundle().getBundleId();
+      long timestamp = event.getTimestamp();
+      List<Wait> ended = new ArrayList<Wait>();
+      synchronized (this)
+      {
+         Trace trace = traces.get(bundleId);
+         switch (event.getType())
+         {
+            case BlueprintEvent.CREATING:
+               traces.put(bundleId, new Trace(bundleId, event.getBundle().getSymbolicName(), timestamp));
+               return;
+            case BlueprintEvent.GRACE_PERIOD:
+               if (trace != null && trace.end == 0)
+                  trace.waiting(event.getDependencies(), timestamp, ended);
+               break;
+            case BlueprintEvent.CREATED:
+            case BlueprintEvent.FAILURE:
+               if (trace != null && trace.end == 0)
+               {
+                  trace.end = timestamp;
+                  trace.failed = (event.getType() == BlueprintEvent.FAILURE);
+                  if (trace.failed == false)
+                     trace.waiting(null, timestamp, ended);
+               }
+               break;
+            case BlueprintEvent.DESTROYED:
+               traces.remove(bundleId);
+               return;
+         }
+      }
+
+      // The service that satisfied the wait is registered by now
+      for (Wait wait : ended)
+         wait.provider = findProvider(wait.filter);
+   }
+
+   private long findProvider(String filter)
+   {
+      try
+      {
+         ServiceReference[] srefs = context.getServiceReferences((String)null, filter);
+         if (srefs == null)
+            return -1;
+
+         // The most recently registered service is the one the container waited for
+         ServiceReference latest = null;
+         long latestId = -1;
+         for (ServiceReference sref : srefs)
+         {
+            Long serviceId = (Long)sref.getProperty(Constants.SERVICE_ID);
+            if (serviceId != null && serviceId > latestId && sref.getBundle() != null)
+            {
+               latest = sref;
+               latestId = serviceId;
+            }
+         }
+         return latest != null ? latest.getBundle().getBundleId() : -1;
+      }
+      catch (InvalidSyntaxException ex)
+      {
+         log.debug("Cannot trace provider for: " + filter);
+         return -1;
+      }
+      catch (IllegalStateException ex)
+      {
+         // The extender is stopping
+         return -1;
+      }
+   }
+
+   /**
+    * Get the critical path of the containers that were traced so far
+    */
+   synchronized List<CriticalPathEntry> getCriticalPath()
+   {
+      Trace current = null;
+      for (Trace trace : traces.values())
+      {
+         if (trace.end != 0 && (current == null || trace.end > current.end))
+            current = trace;
+      }
+
+      LinkedList<CriticalPathEntry> path = new LinkedList<CriticalPathEntry>();
+      Set<Long> visited = new HashSet<Long>();
+      while (current != null && visited.add(current.bundleId))
+      {
+         Wait blocking = null;
+         for (Wait wait : current.waits)
+         {
+            if (wait.end != 0 && wait.provider != current.bundleId && traces.containsKey(wait.provider))
+            {
+               if (blocking == null || wait.end > blocking.end)
+                  blocking = wait;
+            }
+         }
+
+         long waitTime = (blocking != null ? blocking.end - blocking.start : 0);
+         String filter = (blocking != null ? blocking.filter : null);
+         path.addFirst(new CriticalPathEntry(current.bundleId, current.symbolicName, current.start, current.end, waitTime, filter));
+         current = (blocking != null ? traces.get(blocking.provider) : null);
+      }
+      return new ArrayList<CriticalPathEntry>(path);
+   }
+
+   /**
+    * Write the traces to the {@link #TRACE_FILE} in the data area of the extender bundle
+    * @return the file that was written
+    */
+   File writeTraceFile() throws IOException
+   {
+      File file = context.getDataFile(TRACE_FILE);
+      if (file == null)
+         throw new IOException("No data area for: " + TRACE_FILE);
+
+      Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+      try
+      {
+         writeChromeTrace(writer);
+      }
+      finally
+      {
+         writer.close();
+      }
+      return file;
+   }
+
+   /**
+    * Write the traces in the Chrome trace event format, which can be loaded into chrome://tracing or Perfetto.
+    * Containers are complete events on a thread per bundle, waits are nested in them.
+    */
+   synchronized void writeChromeTrace(Writer writer) throws IOException
+   {
+      long origin = Long.MAX_VALUE;
+      for (Trace trace : traces.values())
+         origin = Math.min(origin, trace.start);
+
+      Set<Long> critical = new HashSet<Long>();
+      for (CriticalPathEntry entry : getCriticalPath())
+         critical.add(entry.getBundleId());
+
+      long now = System.currentTimeMillis();
+      writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+      boolean first = true;
+      for (Trace trace : traces.values())
+      {
+         long end = (trace.end != 0 ? trace.end : now);
+         String state = (trace.end == 0 ? "CREATING" : trace.failed ? "FAILURE" : "CREATED");
+         first = writeEvent(writer, first, trace.symbolicName, "container", trace.start - origin, end - trace.start, trace.bundleId);
+         writer.write(",\"args\":{\"bundleId\":" + trace.bundleId + ",\"state\":\"" + state + "\",\"critical\":" + critical.contains(trace.bundleId) + "}}");
+
+         for (Wait wait : trace.waits)
+         {
+            long waitEnd = (wait.end != 0 ? wait.end : end);
+            first = writeEvent(writer, first, "wait " + wait.filter, "wait", wait.start - origin, waitEnd - wait.start, trace.bundleId);
+            writer.write(",\"args\":{\"filter\":");
+            writeString(writer, wait.filter);
+            writer.write(",\"provider\":" + wait.provider + "}}");
+         }
+      }
+      writer.write("]}");
+      writer.flush();
+   }
+
+   private static boolean writeEvent(Writer writer, boolean first, String name, String category, long start, long duration, long bundleId) throws IOException
+   {
+      if (first == false)
+         writer.write(",\n");
+
+      writer.write("{\"name\":");
+      writeString(writer, name);
+      writer.write(",\"cat\":\"" + category + "\",\"ph\":\"X\",\"ts\":" + (start * 1000) + ",\"dur\":" + (duration * 1000) + ",\"pid\":1,\"tid\":" + bundleId);
+      return false;
+   }
+
+   private static void writeString(Writer writer, String value) throws IOException
+   {
+      writer.write('"');
+      for (int i = 0; value != null && i < value.length(); i++)
+      {
+         char ch = value.charAt(i);
+         if (ch == '"' || ch == '\\')
+         {
+            writer.write('\\');
+            writer.write(ch);
+         }
+         else if (ch < 0x20)
+         {
+            String hex = Integer.toHexString(ch);
+            writer.write("\\u" + "0000".substring(hex.length()) + hex);
+         }
+         else
+         {
+            writer.write(ch);
+         }
+      }
+      writer.write('"');
+   }
+
+   private static class Trace
+   {
+      final long bundleId;
+      final String symbolicName;
+      final long start;
+      final List<Wait> waits = new ArrayList<Wait>();
+      final Map<String, Wait> open = new LinkedHashMap<String, Wait>();
+      long end;
+      boolean failed;
+
+      Trace(long bundleId, String symbolicName, long start)
+      {
+         this.bundleId = bundleId;
+         this.symbolicName = symbolicName;
+         this.start = start;
+      }
+
+      /**
+       * Open a wait for every new dependency and end the waits of the dependencies that are no longer reported
+       */
+      void waiting(String[] dependencies, long timestamp, List<Wait> ended)
+      {
+         List<String> current = (dependencies != null ? Arrays.asList(dependencies) : new ArrayList<String>());
+         for (Wait wait : new ArrayList<Wait>(open.values()))
+         {
+            if (current.contains(wait.filter) == false)
+            {
+               wait.end = timestamp;
+               open.remove(wait.filter);
+               ended.add(wait);
+            }
+         }
+         for (String filter : current)
+         {
+            if (open.containsKey(filter) == false)
+            {
+               Wait wait = new Wait(filter, timestamp);
+               open.put(filter, wait);
+               waits.add(wait);
+            }
+         }
+      }
+   }
+
+   private static class Wait
+   {
+      final String filter;
+      final long start;
+      long end;
+      volatile long provider = -1;
+
+      Wait(String filter, long start)
+      {
+         this.filter = filter;
+         this.start = start;
+      }
+   }
+}
@@ -0,0 +1,561 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.osgi.blueprint.BlueprintProperties;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+import org.osgi.service.blueprint.container.BlueprintListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the Blueprint containers of bundles in parallel.
+ * 
+ * The descriptors of every bundle are scanned on the bootstrap pool. A container is only 
+ * held back when one of its mandatory references points at an interface that is exported 
+ * by a bundle that was scheduled earlier and whose container is not yet created. 
+ * It is released when that container becomes CREATED, enters its grace period or fails.
+ * 
+ * Only earlier bundles are considered, so the ordering can never dead lock. It is a best effort 
+ * ordering, the container itself still waits for its mandatory references. 
+ * 
+ * Containers that are ready to be created are taken from a priority queue. A container with a higher 
+ * {@link BlueprintProperties#PRIORITY_HEADER} goes first, then the one whose exported interfaces are 
+ * referenced by more of the other scanned containers, then the one that was scheduled first.
+ * 
+ * The bootstrap timing of a bundle is kept until the bundle is uninstalled.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class BootstrapScheduler implements BlueprintListener, BundleListener
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(BootstrapScheduler.class);
+
+   /**
+    * Creates the container once the bundle is released by the scheduler
+    */
+   interface ContainerFactory
+   {
+      void createContainer(Bundle bundle, List<Object> pathList);
+   }
+
+   private final ExecutorService executor;
+   private final ContainerFactory factory;
+   private final DescriptorCache descriptorCache;
+   private final BeanClassPreloader preloader;
+   private final AtomicLong sequence = new AtomicLong();
+   private final Map<Bundle, BootstrapTask> tasks = new ConcurrentHashMap<Bundle, BootstrapTask>();
+   private final Map<Long, Timing> timings = new ConcurrentHashMap<Long, Timing>();
+   private final ThreadLocal<Boolean> bootstrapThread = new ThreadLocal<Boolean>();
+
+   // guarded by this
+   private final PriorityQueue<BootstrapTask> readyQueue = new PriorityQueue<BootstrapTask>(11, new Comparator<BootstrapTask>()
+   {
+      public int compare(BootstrapTask task1, BootstrapTask task2)
+      {
+         if (task1.priority != task2.priority)
+            return task1.priority > task2.priority ? -1 : 1;
+         if (task1.dependentCount != task2.dependentCount)
+            return task1.dependentCount > task2.dependentCount ? -1 : 1;
+         return task1.sequence < task2.sequence ? -1 : (task1.sequence > task2.sequence ? 1 : 0);
+      }
+   });
+
+   BootstrapScheduler(ExecutorService executor, DescriptorCache descriptorCache, ContainerFactory factory)
+   {
+      this(executor, descriptorCache, factory, null);
+   }
+
+   /**
+    * Create the scheduler
+    * @param preloader the preloader for the bean classes, or null if classes are loaded by the container only
+    */
+   BootstrapScheduler(ExecutorService executor, DescriptorCache descriptorCache, ContainerFactory factory, BeanClassPreloader preloader)
+   {
+      if (executor == null)
+         throw new IllegalArgumentException("Null executor");
+      if (descriptorCache == null)
+         throw new IllegalArgumentException("Null descriptorCache");
+      if (factory == null)
+         throw new IllegalArgumentException("Null factory");
+
+      this.executor = executor;
+      this.descriptorCache = descriptorCache;
+      this.factory = factory;
+      this.preloader = preloader;
+   }
+
+   /**
+    * Schedule the creation of the container for the given bundle
+    */
+   void schedule(Bundle bundle, List<Object> pathList)
+   {
+      final BootstrapTask task = new BootstrapTask(bundle, pathList, sequence.incrementAndGet(), getPriority(bundle));
+      tasks.put(bundle, task);
+      try
+      {
+         execute(new Runnable()
+         {
+            public void run()
+            {
+               scan(task);
+            }
+         });
+      }
+      catch (RejectedExecutionException ex)
+      {
+         log.warn("Cannot schedule blueprint container: " + bundle, ex);
+         tasks.remove(bundle);
+      }
+   }
+
+   /**
+    * Run the task on the bootstrap pool and mark the thread while it runs
+    */
+   private void execute(final Runnable task)
+   {
+      executor.execute(new Runnable()
+      {
+         public void run()
+         {
+            // A rejected task may run nested on a thread that is already marked
+            Boolean marked = bootstrapThread.get();
+            bootstrapThread.set(Boolean.TRUE);
+            try
+            {
+               task.run();
+            }
+            finally
+            {
+               if (marked == null)
+                  bootstrapThread.remove();
+            }
+         }
+      });
+   }
+
+   private static int getPriority(Bundle bundle)
+   {
+      String priority = (String)bundle.getHeaders().get(BlueprintProperties.PRIORITY_HEADER);
+      if (priority == null)
+         return 0;
+
+      try
+      {
+         return Integer.parseInt(priority.trim());
+      }
+      catch (NumberFormatException ex)
+      {
+         log.warn("Invalid " + BlueprintProperties.PRIORITY_HEADER + " in " + bundle + ": " + priority);
+         return 0;
+      }
+   }
+
+   /**
+    * Cancel a pending container creation, i.e. when the bundle stops before its container was created.
+    * @return true if the container was not created yet
+    */
+   boolean cancel(Bundle bundle)
+   {
+      BootstrapTask task = tasks.remove(bundle);
+      if (task == null)
+         return false;
+
+      boolean pending;
+      synchronized (this)
+      {
+         pending = task.started == 0;
+         task.cancelled = true;
+         if (task.queued)
+         {
+            readyQueue.remove(task);
+            task.queued = false;
+         }
+      }
+      release(task);
+      return pending;
+   }
+
+   /**
+    * True if the calling thread runs a task of this scheduler, i.e. it may be creating a container
+    */
+   boolean isBootstrapThread()
+   {
+      return bootstrapThread.get() != null;
+   }
+
+   /**
+    * Get the bootstrap timings of all containers that were created or failed 
+    */
+   List<Timing> getTimings()
+   {
+      return Collections.unmodifiableList(new ArrayList<Timing>(timings.values()));
+   }
+
+   /**
+    * Get the bootstrap timing of the given bundle
+    * @return null if the container of the bundle is not yet created
+    */
+   Timing getTiming(long bundleId)
+   {
+      return timings.get(bundleId);
+   }
+
+   /**
+    * Cancel the pending container creations
+    * @param timeout the time in milliseconds to wait for running creations
+    */
+   void shutdown(long timeout)
+   {
+      executor.shutdownNow();
+      try
+      {
+         executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+      }
+      catch (InterruptedException ex)
+      {
+         Thread.currentThread().interrupt();
+      }
+      tasks.clear();
+      synchronized (this)
+      {
+         readyQueue.clear();
+      }
+   }
+
+   public void blueprintEvent(BlueprintEvent event)
+   {
+      int type = event.getType();
+      if (type == BlueprintEvent.CREATED || type == BlueprintEvent.FAILURE || type == BlueprintEvent.GRACE_PERIOD || type == BlueprintEvent.DESTROYED)
+      {
+         BootstrapTask task = tasks.get(event.getBundle());
+         if (task == null)
+            return;
+
+         if (type != BlueprintEvent.GRACE_PERIOD)
+         {
+            tasks.remove(event.getBundle());
+            task.settled = System.currentTimeMillis();
+            Timing timing = new Timing(task);
+            timings.put(task.bundle.getBundleId(), timing);
+            log.debug("Bootstrap timing " + timing);
+         }
+         release(task);
+      }
+   }
+
+   public void bundleChanged(BundleEvent event)
+   {
+      if (event.getType() == BundleEvent.UNINSTALLED)
+         timings.remove(event.getBundle().getBundleId());
+   }
+
+   private void scan(BootstrapTask task)
+   {
+      long start = System.currentTimeMillis();
+      DescriptorInfo info;
+      try
+      {
+         info = descriptorCache.getDescriptorInfo(task.bundle, task.pathList);
+      }
+      catch (Exception ex)
+      {
+         // The container reports the broken descriptor when it parses it
+         log.debug("Cannot scan blueprint descriptors: " + task.bundle, ex);
+         info = DescriptorInfo.EMPTY;
+      }
+
+      boolean ready;
+      synchronized (this)
+      {
+         task.info = info;
+         task.scanned = System.currentTimeMillis();
+         task.scanMillis = task.scanned - start;
+         if (task.cancelled)
+            return;
+
+         for (BootstrapTask other : tasks.values())
+         {
+            if (other == task || other.info == null)
+               continue;
+
+            boolean dependsOnOther = info.dependsOn(other.info);
+            if (dependsOnOther)
+               increaseDependentCount(other);
+            if (other.info.dependsOn(info))
+               task.dependentCount++;
+
+            if (other.sequence < task.sequence && other.released == false && dependsOnOther)
+            {
+               other.dependents.add(task);
+               task.pending++;
+            }
+         }
+         ready = (task.pending == 0);
+         if (ready)
+            enqueue(task);
+      }
+
+      if (ready)
+      {
+         preloadAsync(task.bundle, info);
+         createNext();
+      }
+      else
+      {
+         log.debug("Hold back blueprint container for " + task.bundle + ", waiting on " + task.pending + " exporting bundle(s)");
+         
+         // Use the scan thread while the container is held back
+         if (preloader != null)
+            preloader.preload(task.bundle, info);
+      }
+   }
+
+   /**
+    * Preload the bean classes on another thread, while the container parses its descriptors
+    */
+   private void preloadAsync(final Bundle bundle, final DescriptorInfo info)
+   {
+      if (preloader == null || info.getBeanClasses().isEmpty())
+         return;
+
+      try
+      {
+         execute(new Runnable()
+         {
+            public void run()
+            {
+               preloader.preload(bundle, info);
+            }
+         });
+      }
+      catch (RejectedExecutionException ex)
+      {
+         // The container loads the classes itself
+      }
+   }
+
+   // guarded by this
+   private void increaseDependentCount(BootstrapTask task)
+   {
+      // Reposition a queued task, the queue does not reorder on its own
+      if (task.queued)
+      {
+         readyQueue.remove(task);
+         task.dependentCount++;
+         readyQueue.add(task);
+      }
+      else
+      {
+         task.dependentCount++;
+      }
+   }
+
+   // guarded by this
+   private void enqueue(BootstrapTask task)
+   {
+      task.queued = true;
+      readyQueue.add(task);
+   }
+
+   /**
+    * Create the container with the highest priority that is ready. 
+    * There is a call for every enqueued task, a cancelled task leaves its call to another one.
+    */
+   private void createNext()
+   {
+      BootstrapTask task;
+      synchronized (this)
+      {
+         task = readyQueue.poll();
+         if (task == null)
+            return;
+
+         task.queued = false;
+      }
+      create(task);
+   }
+
+   private void create(BootstrapTask task)
+   {
+      synchronized (this)
+      {
+         if (task.cancelled || task.started != 0)
+            return;
+
+         task.started = System.currentTimeMillis();
+      }
+
+      try
+      {
+         factory.createContainer(task.bundle, task.pathList);
+      }
+      catch (RuntimeException ex)
+      {
+         log.error("Cannot create blueprint container: " + task.bundle, ex);
+         tasks.remove(task.bundle);
+         release(task);
+      }
+   }
+
+   private void release(BootstrapTask task)
+   {
+      List<BootstrapTask> ready = new ArrayList<BootstrapTask>();
+      synchronized (this)
+      {
+         if (task.released)
+            return;
+
+         task.released = true;
+         for (BootstrapTask dependent : task.dependents)
+         {
+            if (--dependent.pending == 0 && dependent.cancelled == false)
+            {
+               enqueue(dependent);
+               ready.add(dependent);
+            }
+         }
+         task.dependents.clear();
+      }
+
+      for (BootstrapTask dependent : ready)
+      {
+         try
+         {
+            execute(new Runnable()
+            {
+               public void run()
+               {
+                  createNext();
+               }
+            });
+         }
+         catch (RejectedExecutionException ex)
+         {
+            log.warn("Cannot schedule blueprint container: " + dependent.bundle, ex);
+         }
+      }
+   }
+
+   private static class BootstrapTask
+   {
+      final Bundle bundle;
+      final List<Object> pathList;
+      final long sequence;
+      final int priority;
+      final List<BootstrapTask> dependents = new ArrayList<BootstrapTask>();
+
+      // guarded by the scheduler
+      volatile DescriptorInfo info;
+      long scanned;
+      long scanMillis;
+      long started;
+      long settled;
+      int pending;
+      int dependentCount;
+      boolean queued;
+      boolean released;
+      boolean cancelled;
+
+      BootstrapTask(Bundle bundle, List<Object> pathList, long sequence, int priority)
+      {
+         this.bundle = bundle;
+         this.pathList = pathList;
+         this.sequence = sequence;
+         this.priority = priority;
+      }
+   }
+
+   /**
+    * The bootstrap timing of a container 
+    */
+   static class Timing
+   {
+      private final long bundleId;
+      private final String symbolicName;
+      private final long scanMillis;
+      private final long holdMillis;
+      private final long createMillis;
+
+      private Timing(BootstrapTask task)
+      {
+         this.bundleId = task.bundle.getBundleId();
+         this.symbolicName = task.bundle.getSymbolicName();
+         this.scanMillis = task.scanMillis;
+         this.holdMillis = task.started != 0 ? task.started - task.scanned : 0;
+         this.createMillis = task.started != 0 ? task.settled - task.started : 0;
+      }
+
+      long getBundleId()
+      {
+         return bundleId;
+      }
+
+      String getSymbolicName()
+      {
+         return symbolicName;
+      }
+
+      /** The time it took to scan the descriptors */
+      long getScanMillis()
+      {
+         return scanMillis;
+      }
+
+      /** The time the container was held back for an exporting bundle */
+      long getHoldMillis()
+      {
+         return holdMillis;
+      }
+
+      /** The time from container creation to CREATED or FAILURE */
+      long getCreateMillis()
+      {
+         return createMillis;
+      }
+
+      @Override
+      public String toString()
+      {
+         return "[" + symbolicName + ":" + bundleId + ",scan=" + scanMillis + "ms,hold=" + holdMillis + "ms,create=" + createMillis + "ms]";
+      }
+   }
+}
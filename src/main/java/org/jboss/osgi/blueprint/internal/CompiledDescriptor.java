@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.osgi.framework.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The descriptor info that {@link BlueprintAnalyzerPlugin} compiled into a bundle at build time.
+ * 
+ * The artifact holds the descriptor paths it was compiled from and the {@link DescriptorInfo} of these descriptors,
+ * with the bean classes in dependency order. It is used instead of scanning the descriptors, as long as the 
+ * descriptors of the bundle are still the ones it was compiled from.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class CompiledDescriptor
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(CompiledDescriptor.class);
+
+   /** The path of the compiled artifact in the bundle */
+   static final String ARTIFACT_PATH = "META-INF/blueprint.compiled";
+
+   private static final int MAGIC = 0x42504344;
+   private static final int VERSION = 1;
+
+   /**
+    * Load the compiled descriptor info of the given bundle
+    * @param pathList the descriptor paths that the container is created from
+    * @return null if the bundle has no compiled artifact, or it was compiled from other descriptors
+    */
+   static DescriptorInfo load(Bundle bundle, List<Object> pathList)
+   {
+      URL url = bundle.getEntry(ARTIFACT_PATH);
+      if (url == null)
+         return null;
+
+      try
+      {
+         DataInputStream in = new DataInputStream(new BufferedInputStream(url.openStream()));
+         try
+         {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+               log.debug("Unsupported compiled blueprint descriptor: " + bundle);
+               return null;
+            }
+
+            int count = in.readUnsignedShort();
+            List<String> paths = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++)
+               paths.add(in.readUTF());
+
+            Collections.sort(paths);
+            if (paths.equals(getPaths(pathList)) == false)
+            {
+               log.debug("Compiled blueprint descriptor is out of date: " + bundle);
+               return null;
+            }
+            return DescriptorInfo.readFrom(in);
+         }
+         finally
+         {
+            in.close();
+         }
+      }
+      catch (IOException ex)
+      {
+         log.warn("Cannot read compiled blueprint descriptor: " + bundle, ex);
+         return null;
+      }
+   }
+
+   /**
+    * Write the compiled artifact
+    * @param paths the bundle entry paths of the descriptors
+    * @param info the descriptor info with the bean classes in dependency order
+    */
+   static void write(DataOutput out, List<String> paths, DescriptorInfo info) throws IOException
+   {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeShort(paths.size());
+      for (String path : paths)
+         out.writeUTF(path);
+      info.writeTo(out);
+   }
+
+   /**
+    * Get the sorted bundle entry paths of the given descriptor paths, without a leading slash
+    */
+   static List<String> getPaths(List<Object> pathList)
+   {
+      List<String> paths = new ArrayList<String>(pathList.size());
+      for (Object path : pathList)
+      {
+         String value = (path instanceof URL ? ((URL)path).getPath() : path.toString());
+         if (value.startsWith("/"))
+            value = value.substring(1);
+         paths.add(value);
+      }
+      Collections.sort(paths);
+      return paths;
+   }
+}
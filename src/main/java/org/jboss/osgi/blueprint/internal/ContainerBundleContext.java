@@ -0,0 +1,386 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.List;
+
+import org.apache.aries.blueprint.container.BlueprintContainerImpl;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.blueprint.container.BlueprintContainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The bundle context that a Blueprint container works with.
+ * 
+ * It delegates to the context of the Blueprint bundle, except for the filtered service listeners of the 
+ * container's own reference recipes, which are registered with the shared {@link ReferenceIndex} instead of 
+ * the framework. Listeners of any other class, i.e. of a bean, are registered with the framework.
+ * 
+ * The container also hands this context to its beans as blueprintBundleContext. It behaves like the 
+ * context of the bundle, but it is not the same instance as {@link Bundle#getBundleContext()}.
+ * 
+ * In batch mode the services of the container's service recipes are held back until the container registers 
+ * itself as {@link BlueprintContainer}, which happens after its eager beans are initialized. They are then 
+ * registered in one block. A bean that registers a service through blueprintBundleContext registers it at once. 
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class ContainerBundleContext implements BundleContext
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(ContainerBundleContext.class);
+
+   /** The package of the container and its recipes */
+   private static final String CONTAINER_PACKAGE = BlueprintContainerImpl.class.getName().substring(0, BlueprintContainerImpl.class.getName().lastIndexOf('.') + 1);
+
+   private final BundleContext delegate;
+   private final ReferenceIndex referenceIndex;
+   private final ContainerMetrics metrics;
+   private final Bundle bundle;
+
+   // The registrations that are held back, null if registrations are not batched (anymore)
+   private List<DeferredRegistration> deferred;
+
+   ContainerBundleContext(BundleContext delegate, ReferenceIndex referenceIndex)
+   {
+      this(delegate, referenceIndex, null);
+   }
+
+   /**
+    * Create a context that batches the service registrations of the container
+    * @param metrics the metrics that record the batches, null if registrations are not batched
+    */
+   ContainerBundleContext(BundleContext delegate, ReferenceIndex referenceIndex, ContainerMetrics metrics)
+   {
+      if (delegate == null)
+         throw new IllegalArgumentException("Null delegate");
+      if (referenceIndex == null)
+         throw new IllegalArgumentException("Null referenceIndex");
+
+      this.delegate = delegate;
+      this.referenceIndex = referenceIndex;
+      this.metrics = metrics;
+      this.bundle = delegate.getBundle();
+
+      if (metrics != null)
+         deferred = new ArrayList<DeferredRegistration>();
+   }
+
+   BundleContext getDelegate()
+   {
+      return delegate;
+   }
+
+   public void addServiceListener(ServiceListener listener, String filter) throws InvalidSyntaxException
+   {
+      if (listener == null)
+         throw new IllegalArgumentException("Null listener");
+
+      if (filter == null || isContainerObject(listener) == false)
+      {
+         referenceIndex.removeServiceListener(bundle, listener);
+         delegate.addServiceListener(listener, filter);
+         return;
+      }
+
+      // Verify that the context is still valid
+      delegate.getBundle();
+      Filter parsed = delegate.createFilter(filter);
+      delegate.removeServiceListener(listener);
+      referenceIndex.addServiceListener(bundle, listener, parsed);
+   }
+
+   /**
+    * True if the object belongs to the container itself, i.e. a reference recipe, rather than to a bean
+    */
+   private static boolean isContainerObject(Object object)
+   {
+      return object.getClass().getName().startsWith(CONTAINER_PACKAGE);
+   }
+
+   public void addServiceListener(ServiceListener listener)
+   {
+      referenceIndex.removeServiceListener(bundle, listener);
+      delegate.addServiceListener(listener);
+   }
+
+   public void removeServiceListener(ServiceListener listener)
+   {
+      referenceIndex.removeServiceListener(bundle, listener);
+      delegate.removeServiceListener(listener);
+   }
+
+   public String getProperty(String key)
+   {
+      return delegate.getProperty(key);
+   }
+
+   public Bundle getBundle()
+   {
+      return delegate.getBundle();
+   }
+
+   public Bundle installBundle(String location, InputStream input) throws BundleException
+   {
+      return delegate.installBundle(location, input);
+   }
+
+   public Bundle installBundle(String location) throws BundleException
+   {
+      return delegate.installBundle(location);
+   }
+
+   public Bundle getBundle(long id)
+   {
+      return delegate.getBundle(id);
+   }
+
+   public Bundle[] getBundles()
+   {
+      return delegate.getBundles();
+   }
+
+   public void addBundleListener(BundleListener listener)
+   {
+      delegate.addBundleListener(listener);
+   }
+
+   public void removeBundleListener(BundleListener listener)
+   {
+      delegate.removeBundleListener(listener);
+   }
+
+   public void addFrameworkListener(FrameworkListener listener)
+   {
+      delegate.addFrameworkListener(listener);
+   }
+
+   public void removeFrameworkListener(FrameworkListener listener)
+   {
+      delegate.removeFrameworkListener(listener);
+   }
+
+   public ServiceRegistration registerService(String[] clazzes, Object service, Dictionary properties)
+   {
+      if (clazzes == null || clazzes.length == 0)
+         throw new IllegalArgumentException("Null clazzes");
+      if (service == null)
+         throw new IllegalArgumentException("Null service");
+
+      // The container registers itself when its beans are initialized
+      for (String clazz : clazzes)
+      {
+         if (BlueprintContainer.class.getName().equals(clazz))
+         {
+            flush();
+            return delegate.registerService(clazzes, service, properties);
+         }
+      }
+
+      synchronized (this)
+      {
+         if (deferred != null && isContainerObject(service))
+         {
+            // Verify that the context is still valid
+            delegate.getBundle();
+            DeferredRegistration registration = new DeferredRegistration(clazzes, service, properties);
+            deferred.add(registration);
+            return registration;
+         }
+      }
+      return delegate.registerService(clazzes, service, properties);
+   }
+
+   public ServiceRegistration registerService(String clazz, Object service, Dictionary properties)
+   {
+      return registerService(new String[] { clazz }, service, properties);
+   }
+
+   /**
+    * Register the services that are held back in one block and stop batching
+    */
+   void flush()
+   {
+      List<DeferredRegistration> pending;
+      synchronized (this)
+      {
+         pending = deferred;
+         deferred = null;
+      }
+      if (pending == null || pending.isEmpty())
+         return;
+
+      int count = 0;
+      long start = System.currentTimeMillis();
+      for (DeferredRegistration registration : pending)
+      {
+         try
+         {
+            if (registration.register())
+               count++;
+         }
+         catch (RuntimeException ex)
+         {
+            log.error("Cannot register batched service: " + registration, ex);
+         }
+      }
+      long time = System.currentTimeMillis() - start;
+      metrics.recordRegistrations(bundle, count, time);
+      log.debug("Registered " + count + " batched services of " + bundle + " in " + time + "ms");
+   }
+
+   public ServiceReference[] getServiceReferences(String clazz, String filter) throws InvalidSyntaxException
+   {
+      return delegate.getServiceReferences(clazz, filter);
+   }
+
+   public ServiceReference[] getAllServiceReferences(String clazz, String filter) throws InvalidSyntaxException
+   {
+      return delegate.getAllServiceReferences(clazz, filter);
+   }
+
+   public ServiceReference getServiceReference(String clazz)
+   {
+      return delegate.getServiceReference(clazz);
+   }
+
+   public Object getService(ServiceReference reference)
+   {
+      return delegate.getService(reference);
+   }
+
+   public boolean ungetService(ServiceReference reference)
+   {
+      return delegate.ungetService(reference);
+   }
+
+   public File getDataFile(String filename)
+   {
+      return delegate.getDataFile(filename);
+   }
+
+   public Filter createFilter(String filter) throws InvalidSyntaxException
+   {
+      return delegate.createFilter(filter);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ContainerBundleContext[" + bundle + "]";
+   }
+
+   /**
+    * A service registration that is held back until the batch is flushed.
+    * 
+    * A call to {@link #getReference()} registers the service ahead of the batch.
+    */
+   class DeferredRegistration implements ServiceRegistration
+   {
+      private final String[] clazzes;
+      private final Object service;
+      private Dictionary properties;
+      private ServiceRegistration registration;
+      private boolean unregistered;
+
+      DeferredRegistration(String[] clazzes, Object service, Dictionary properties)
+      {
+         this.clazzes = clazzes;
+         this.service = service;
+         this.properties = properties;
+      }
+
+      /**
+       * Register the service with the framework, unless it is already registered or unregistered
+       * @return true if the service was registered by this call
+       */
+      synchronized boolean register()
+      {
+         if (registration != null || unregistered == true)
+            return false;
+
+         registration = delegate.registerService(clazzes, service, properties);
+         properties = null;
+         return true;
+      }
+
+      public synchronized ServiceReference getReference()
+      {
+         if (unregistered == true)
+            throw new IllegalStateException("Service already unregistered: " + this);
+
+         register();
+         return registration.getReference();
+      }
+
+      public synchronized void setProperties(Dictionary properties)
+      {
+         if (unregistered == true)
+            throw new IllegalStateException("Service already unregistered: " + this);
+
+         if (registration != null)
+            registration.setProperties(properties);
+         else
+            this.properties = properties;
+      }
+
+      public synchronized void unregister()
+      {
+         if (unregistered == true)
+            throw new IllegalStateException("Service already unregistered: " + this);
+
+         unregistered = true;
+         if (registration != null)
+            registration.unregister();
+      }
+
+      @Override
+      public String toString()
+      {
+         StringBuffer buffer = new StringBuffer();
+         for (String clazz : clazzes)
+         {
+            if (buffer.length() > 0)
+               buffer.append(",");
+            buffer.append(clazz);
+         }
+         return "DeferredRegistration[" + buffer + "]";
+      }
+   }
+}
@@ -0,0 +1,254 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.osgi.framework.Bundle;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+import org.osgi.service.blueprint.container.BlueprintListener;
+
+/**
+ * Collects the creation latency and grace period wait of every container from its blueprint events,
+ * the time it took to register its batched services
+ * and the heap that was released by dropping its metadata.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class ContainerMetrics implements BlueprintListener
+{
+   private final ConcurrentMap<Bundle, Record> records = new ConcurrentHashMap<Bundle, Record>();
+
+   public void blueprintEvent(BlueprintEvent event)
+   {
+      Bundle bundle = event.getBundle();
+      if (event.getType() == BlueprintEvent.DESTROYED)
+      {
+         records.remove(bundle);
+         return;
+      }
+
+      getOrCreateRecord(bundle).update(event);
+   }
+
+   /**
+    * Record the services that the container of the given bundle registered in one batch
+    */
+   void recordRegistrations(Bundle bundle, int count, long time)
+   {
+      getOrCreateRecord(bundle).updateRegistrations(count, time);
+   }
+
+   /**
+    * Record the estimated heap that was released by dropping the metadata of a container
+    */
+   void recordTrim(Bundle bundle, long bytes)
+   {
+      getOrCreateRecord(bundle).updateTrim(bytes);
+   }
+
+   private Record getOrCreateRecord(Bundle bundle)
+   {
+      Record record = records.get(bundle);
+      if (record == null)
+      {
+         Record newRecord = new Record();
+         record = records.putIfAbsent(bundle, newRecord);
+         if (record == null)
+            record = newRecord;
+      }
+      return record;
+   }
+
+   /**
+    * Get the metrics record of the given bundle
+    * @return null if the bundle has no container
+    */
+   Record getRecord(Bundle bundle)
+   {
+      return records.get(bundle);
+   }
+
+   /**
+    * Get the bundles that have a metrics record
+    */
+   Iterable<Bundle> getBundles()
+   {
+      return records.keySet();
+   }
+
+   static class Record
+   {
+      private long creating;
+      private long created;
+      private long graceStart;
+      private long graceTotal;
+      private int unsatisfied;
+      private int batchedServices;
+      private long registrationTime;
+      private long trimmedBytes;
+      private final Map<String, Long> filterStarts = new HashMap<String, Long>();
+      private final Map<String, Long> filterTotals = new LinkedHashMap<String, Long>();
+
+      synchronized void update(BlueprintEvent event)
+      {
+         long timestamp = event.getTimestamp();
+         int type = event.getType();
+         if (type == BlueprintEvent.GRACE_PERIOD)
+         {
+            if (graceStart == 0)
+               graceStart = timestamp;
+
+            String[] dependencies = event.getDependencies();
+            unsatisfied = (dependencies != null ? dependencies.length : 0);
+            updateFilters(dependencies, timestamp);
+            return;
+         }
+
+         if (type != BlueprintEvent.WAITING)
+            updateFilters(null, timestamp);
+
+         if (graceStart != 0 && type != BlueprintEvent.WAITING)
+         {
+            graceTotal += timestamp - graceStart;
+            graceStart = 0;
+         }
+         
+         if (type == BlueprintEvent.CREATING)
+         {
+            creating = timestamp;
+            created = 0;
+            batchedServices = 0;
+            registrationTime = 0;
+            trimmedBytes = 0;
+         }
+         else if (type == BlueprintEvent.CREATED)
+         {
+            created = timestamp;
+            unsatisfied = 0;
+         }
+      }
+
+      /**
+       * The time from CREATING to CREATED, or -1 if the container is not created
+       */
+      synchronized long getCreationLatency()
+      {
+         return (creating != 0 && created != 0 ? created - creating : -1);
+      }
+
+      /**
+       * The accumulated grace period wait, including an ongoing grace period
+       */
+      synchronized long getGracePeriodWait()
+      {
+         long ongoing = (graceStart != 0 ? System.currentTimeMillis() - graceStart : 0);
+         return graceTotal + ongoing;
+      }
+
+      /**
+       * Start the wait for the given dependency filters and end the wait for the filters that are satisfied
+       */
+      private void updateFilters(String[] dependencies, long timestamp)
+      {
+         Set<String> waiting = new HashSet<String>();
+         if (dependencies != null)
+            waiting.addAll(Arrays.asList(dependencies));
+
+         Iterator<Map.Entry<String, Long>> it = filterStarts.entrySet().iterator();
+         while (it.hasNext())
+         {
+            Map.Entry<String, Long> entry = it.next();
+            if (waiting.remove(entry.getKey()) == false)
+            {
+               addFilterWait(entry.getKey(), timestamp - entry.getValue());
+               it.remove();
+            }
+         }
+         for (String filter : waiting)
+            filterStarts.put(filter, timestamp);
+      }
+
+      private void addFilterWait(String filter, long wait)
+      {
+         Long total = filterTotals.get(filter);
+         filterTotals.put(filter, (total != null ? total : 0) + wait);
+      }
+
+      synchronized void updateRegistrations(int count, long time)
+      {
+         batchedServices += count;
+         registrationTime += time;
+      }
+
+      synchronized void updateTrim(long bytes)
+      {
+         trimmedBytes += bytes;
+      }
+
+      synchronized int getUnsatisfiedReferences()
+      {
+         return unsatisfied;
+      }
+
+      synchronized int getBatchedServices()
+      {
+         return batchedServices;
+      }
+
+      synchronized long getRegistrationTime()
+      {
+         return registrationTime;
+      }
+
+      /**
+       * The accumulated wait per dependency filter, including the ongoing waits
+       */
+      synchronized Map<String, Long> getDependencyWaits()
+      {
+         Map<String, Long> result = new LinkedHashMap<String, Long>(filterTotals);
+         long now = System.currentTimeMillis();
+         for (Map.Entry<String, Long> entry : filterStarts.entrySet())
+         {
+            Long total = result.get(entry.getKey());
+            result.put(entry.getKey(), (total != null ? total : 0) + now - entry.getValue());
+         }
+         return result;
+      }
+
+      synchronized long getTrimmedBytes()
+      {
+         return trimmedBytes;
+      }
+   }
+}
@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.aries.blueprint.container.BlueprintContainerImpl;
+import org.osgi.framework.Bundle;
+
+/**
+ * A thread safe registry of the Blueprint containers created by the interceptor.
+ * 
+ * Containers are keyed by bundle id. Bundles can be started and stopped concurrently 
+ * without a global lock.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class ContainerRegistry
+{
+   private final ConcurrentMap<Long, ContainerEntry> containers = new ConcurrentHashMap<Long, ContainerEntry>();
+
+   /**
+    * Register the container of a bundle
+    * @return false if the bundle already has a container
+    */
+   boolean add(Bundle bundle, BlueprintContainerImpl container)
+   {
+      ContainerEntry entry = new ContainerEntry(bundle, container);
+      return containers.putIfAbsent(bundle.getBundleId(), entry) == null;
+   }
+
+   /**
+    * Unregister the container of a bundle
+    * @return the container or null if the bundle had none
+    */
+   BlueprintContainerImpl remove(Bundle bundle)
+   {
+      ContainerEntry entry = containers.remove(bundle.getBundleId());
+      return entry != null ? entry.container : null;
+   }
+
+   /**
+    * Unregister the given container of a bundle
+    * @return false if the bundle has no container or a different one
+    */
+   boolean remove(Bundle bundle, BlueprintContainerImpl container)
+   {
+      ContainerEntry entry = containers.get(bundle.getBundleId());
+      return entry != null && entry.container == container && containers.remove(bundle.getBundleId(), entry);
+   }
+
+   BlueprintContainerImpl getContainer(long bundleId)
+   {
+      ContainerEntry entry = containers.get(bundleId);
+      return entry != null ? entry.container : null;
+   }
+
+   /**
+    * Get the bundles that currently have a container
+    */
+   List<Bundle> getBundles()
+   {
+      List<Bundle> result = new ArrayList<Bundle>();
+      for (ContainerEntry entry : containers.values())
+         result.add(entry.bundle);
+      return result;
+   }
+
+   int size()
+   {
+      return containers.size();
+   }
+
+   /**
+    * Remove all containers
+    * @return the removed containers, which the caller must destroy
+    */
+   List<ContainerEntry> removeAll()
+   {
+      List<ContainerEntry> entries = new ArrayList<ContainerEntry>();
+      for (Bundle bundle : getBundles())
+      {
+         BlueprintContainerImpl container = remove(bundle);
+         if (container != null)
+            entries.add(new ContainerEntry(bundle, container));
+      }
+      return entries;
+   }
+
+   static class ContainerEntry
+   {
+      final Bundle bundle;
+      final BlueprintContainerImpl container;
+
+      ContainerEntry(Bundle bundle, BlueprintContainerImpl container)
+      {
+         this.bundle = bundle;
+         this.container = container;
+      }
+   }
+}
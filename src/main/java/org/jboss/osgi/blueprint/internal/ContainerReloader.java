@@ -0,0 +1,263 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.osgi.framework.Bundle;
+
+/**
+ * Keeps a digest of every top level component of the running containers, so that a reload 
+ * can tell which components changed.
+ * 
+ * A component is keyed by its id, anonymous components by their element name and position. 
+ * The attributes of the &lt;blueprint&gt; element are digested as one more component, since 
+ * their defaults apply to all others. Whitespace and attribute order do not change a digest.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class ContainerReloader
+{
+   static final String ROOT_COMPONENT = "#blueprint";
+
+   private final XMLInputFactory factory;
+   private final Map<Long, Map<String, String>> digests = new ConcurrentHashMap<Long, Map<String, String>>();
+
+   ContainerReloader()
+   {
+      factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+      factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+   }
+
+   /**
+    * Record the component digests of a container that is about to be created
+    */
+   void record(Bundle bundle, List<Object> pathList) throws IOException
+   {
+      digests.put(bundle.getBundleId(), digest(bundle, pathList));
+   }
+
+   void remove(Bundle bundle)
+   {
+      digests.remove(bundle.getBundleId());
+   }
+
+   /**
+    * Digest the current descriptors and compare them with the recorded ones. 
+    * The new digests are recorded if anything changed.
+    * @return the ids of the added, removed and changed components, which is empty if nothing changed
+    */
+   List<String> diff(Bundle bundle, List<Object> pathList) throws IOException
+   {
+      Map<String, String> current = digest(bundle, pathList);
+      Map<String, String> previous = digests.get(bundle.getBundleId());
+      if (previous == null)
+         previous = Collections.emptyMap();
+
+      Set<String> keys = new HashSet<String>(previous.keySet());
+      keys.addAll(current.keySet());
+
+      List<String> changed = new ArrayList<String>();
+      for (String key : keys)
+      {
+         String before = previous.get(key);
+         String after = current.get(key);
+         if (before == null || after == null || before.equals(after) == false)
+            changed.add(key);
+      }
+      Collections.sort(changed);
+
+      if (changed.isEmpty() == false)
+         digests.put(bundle.getBundleId(), current);
+
+      return changed;
+   }
+
+   Map<String, String> digest(Bundle bundle, List<Object> pathList) throws IOException
+   {
+      Map<String, String> result = new HashMap<String, String>();
+      Map<String, Integer> anonymous = new HashMap<String, Integer>();
+      for (URL url : DescriptorScanner.getDescriptorURLs(bundle, pathList))
+      {
+         InputStream input = url.openStream();
+         try
+         {
+            digest(input, result, anonymous);
+         }
+         catch (XMLStreamException ex)
+         {
+            IOException ioex = new IOException("Cannot digest blueprint descriptor: " + url);
+            ioex.initCause(ex);
+            throw ioex;
+         }
+         finally
+         {
+            input.close();
+         }
+      }
+      return result;
+   }
+
+   private void digest(InputStream input, Map<String, String> result, Map<String, Integer> anonymous) throws XMLStreamException
+   {
+      XMLStreamReader reader = factory.createXMLStreamReader(input);
+      try
+      {
+         MessageDigest digest = null;
+         String key = null;
+         int depth = 0;
+         while (reader.hasNext())
+         {
+            switch (reader.next())
+            {
+               case XMLStreamConstants.START_ELEMENT:
+                  depth++;
+                  if (depth == 1)
+                  {
+                     // Multiple descriptors contribute to the same root component
+                     MessageDigest root = newDigest();
+                     update(root, result.get(ROOT_COMPONENT));
+                     updateElement(root, reader);
+                     result.put(ROOT_COMPONENT, toHex(root.digest()));
+                  }
+                  else if (depth == 2)
+                  {
+                     key = reader.getAttributeValue(null, "id");
+                     if (key == null)
+                     {
+                        String name = "#" + reader.getLocalName();
+                        Integer index = anonymous.get(name);
+                        index = (index != null ? index + 1 : 0);
+                        anonymous.put(name, index);
+                        key = name + "[" + index + "]";
+                     }
+                     digest = newDigest();
+                     updateElement(digest, reader);
+                  }
+                  else if (digest != null)
+                  {
+                     updateElement(digest, reader);
+                  }
+                  break;
+               case XMLStreamConstants.END_ELEMENT:
+                  if (digest != null)
+                     update(digest, ">");
+                  if (depth == 2 && digest != null)
+                  {
+                     result.put(key, toHex(digest.digest()));
+                     digest = null;
+                  }
+                  depth--;
+                  break;
+               case XMLStreamConstants.CHARACTERS:
+               case XMLStreamConstants.CDATA:
+                  if (digest != null)
+                  {
+                     String text = reader.getText().trim();
+                     if (text.length() > 0)
+                        update(digest, text);
+                  }
+                  break;
+            }
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+   private static void updateElement(MessageDigest digest, XMLStreamReader reader)
+   {
+      update(digest, "<" + reader.getNamespaceURI() + ":" + reader.getLocalName());
+      String[] attributes = new String[reader.getAttributeCount()];
+      for (int i = 0; i < attributes.length; i++)
+         attributes[i] = reader.getAttributeNamespace(i) + ":" + reader.getAttributeLocalName(i) + "=" + reader.getAttributeValue(i);
+
+      Arrays.sort(attributes);
+      for (String attribute : attributes)
+         update(digest, attribute);
+   }
+
+   private static void update(MessageDigest digest, String value)
+   {
+      if (value == null)
+         return;
+
+      try
+      {
+         digest.update(value.getBytes("UTF-8"));
+         digest.update((byte)0);
+      }
+      catch (UnsupportedEncodingException ex)
+      {
+         throw new IllegalStateException(ex);
+      }
+   }
+
+   private static MessageDigest newDigest()
+   {
+      try
+      {
+         return MessageDigest.getInstance("MD5");
+      }
+      catch (NoSuchAlgorithmException ex)
+      {
+         throw new IllegalStateException(ex);
+      }
+   }
+
+   private static String toHex(byte[] bytes)
+   {
+      StringBuilder builder = new StringBuilder(bytes.length * 2);
+      for (byte b : bytes)
+      {
+         builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+         builder.append(Character.forDigit(b & 0xf, 16));
+      }
+      return builder.toString();
+   }
+}
@@ -0,0 +1,225 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.aries.blueprint.ComponentDefinitionRegistry;
+import org.apache.aries.blueprint.container.BlueprintContainerImpl;
+import org.osgi.framework.Bundle;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+import org.osgi.service.blueprint.container.BlueprintListener;
+import org.osgi.service.blueprint.reflect.BeanArgument;
+import org.osgi.service.blueprint.reflect.BeanMetadata;
+import org.osgi.service.blueprint.reflect.BeanProperty;
+import org.osgi.service.blueprint.reflect.CollectionMetadata;
+import org.osgi.service.blueprint.reflect.ComponentMetadata;
+import org.osgi.service.blueprint.reflect.IdRefMetadata;
+import org.osgi.service.blueprint.reflect.MapEntry;
+import org.osgi.service.blueprint.reflect.MapMetadata;
+import org.osgi.service.blueprint.reflect.Metadata;
+import org.osgi.service.blueprint.reflect.PropsMetadata;
+import org.osgi.service.blueprint.reflect.RefMetadata;
+import org.osgi.service.blueprint.reflect.ValueMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drops the metadata of eager singleton beans once their container is CREATED.
+ * 
+ * The container creates its components from the recipes it built when it was populated, the metadata 
+ * of an eager singleton is not needed anymore once the bean exists. The metadata of prototype and lazy 
+ * beans, services and references is retained. A dropped bean is no longer reported by 
+ * {@link org.osgi.service.blueprint.container.BlueprintContainer#getComponentMetadata(String)}.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class ContainerTrimmer implements BlueprintListener
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(ContainerTrimmer.class);
+
+   // Rough sizes of the objects a parsed metadata graph is made of
+   private static final int OBJECT_SIZE = 16;
+   private static final int REFERENCE_SIZE = 8;
+   private static final int METADATA_SIZE = 64;
+   private static final int LIST_SIZE = 40;
+
+   private final ContainerRegistry containers;
+   private final ContainerMetrics metrics;
+
+   ContainerTrimmer(ContainerRegistry containers, ContainerMetrics metrics)
+   {
+      if (containers == null)
+         throw new IllegalArgumentException("Null containers");
+      if (metrics == null)
+         throw new IllegalArgumentException("Null metrics");
+
+      this.containers = containers;
+      this.metrics = metrics;
+   }
+
+   public void blueprintEvent(BlueprintEvent event)
+   {
+      if (event.getType() != BlueprintEvent.CREATED)
+         return;
+
+      Bundle bundle = event.getBundle();
+      BlueprintContainerImpl container = containers.getContainer(bundle.getBundleId());
+      if (container == null)
+         return;
+
+      try
+      {
+         long saved = trim(container.getComponentDefinitionRegistry());
+         metrics.recordTrim(bundle, saved);
+         log.debug("Dropped " + saved + " bytes of metadata: " + bundle);
+      }
+      catch (RuntimeException ex)
+      {
+         log.warn("Cannot drop the metadata of: " + bundle, ex);
+      }
+   }
+
+   /**
+    * Remove the eager singleton beans from the given registry 
+    * @return the estimated number of bytes that were removed
+    */
+   static long trim(ComponentDefinitionRegistry registry)
+   {
+      List<String> names = new ArrayList<String>(registry.getComponentDefinitionNames());
+      long saved = 0;
+      for (String name : names)
+      {
+         ComponentMetadata metadata = registry.getComponentDefinition(name);
+         if (isEagerSingleton(metadata))
+         {
+            registry.removeComponentDefinition(name);
+            saved += estimate(metadata);
+         }
+      }
+      return saved;
+   }
+
+   static boolean isEagerSingleton(ComponentMetadata metadata)
+   {
+      if (metadata instanceof BeanMetadata == false)
+         return false;
+
+      String scope = ((BeanMetadata)metadata).getScope();
+      if (scope != null && BeanMetadata.SCOPE_SINGLETON.equals(scope) == false)
+         return false;
+
+      return metadata.getActivation() != ComponentMetadata.ACTIVATION_LAZY;
+   }
+
+   /**
+    * Estimate the heap that is held by the given metadata graph
+    */
+   static long estimate(Metadata metadata)
+   {
+      if (metadata == null)
+         return 0;
+
+      long size = METADATA_SIZE;
+      if (metadata instanceof ComponentMetadata)
+      {
+         ComponentMetadata component = (ComponentMetadata)metadata;
+         size += estimate(component.getId());
+         List<String> dependsOn = component.getDependsOn();
+         if (dependsOn != null)
+         {
+            size += LIST_SIZE;
+            for (String id : dependsOn)
+               size += REFERENCE_SIZE + estimate(id);
+         }
+      }
+
+      if (metadata instanceof BeanMetadata)
+      {
+         BeanMetadata bean = (BeanMetadata)metadata;
+         size += estimate(bean.getClassName()) + estimate(bean.getInitMethod()) + estimate(bean.getDestroyMethod());
+         size += estimate(bean.getFactoryMethod()) + estimate(bean.getFactoryComponent());
+         List<BeanArgument> arguments = bean.getArguments();
+         if (arguments != null)
+         {
+            size += LIST_SIZE;
+            for (BeanArgument argument : arguments)
+               size += OBJECT_SIZE + REFERENCE_SIZE + estimate(argument.getValueType()) + estimate(argument.getValue());
+         }
+         List<BeanProperty> properties = bean.getProperties();
+         if (properties != null)
+         {
+            size += LIST_SIZE;
+            for (BeanProperty property : properties)
+               size += OBJECT_SIZE + REFERENCE_SIZE + estimate(property.getName()) + estimate(property.getValue());
+         }
+      }
+      else if (metadata instanceof ValueMetadata)
+      {
+         ValueMetadata value = (ValueMetadata)metadata;
+         size += estimate(value.getStringValue()) + estimate(value.getType());
+      }
+      else if (metadata instanceof RefMetadata)
+      {
+         size += estimate(((RefMetadata)metadata).getComponentId());
+      }
+      else if (metadata instanceof IdRefMetadata)
+      {
+         size += estimate(((IdRefMetadata)metadata).getComponentId());
+      }
+      else if (metadata instanceof CollectionMetadata)
+      {
+         CollectionMetadata collection = (CollectionMetadata)metadata;
+         size += LIST_SIZE + estimate(collection.getValueType());
+         for (Metadata value : collection.getValues())
+            size += REFERENCE_SIZE + estimate(value);
+      }
+      else if (metadata instanceof MapMetadata)
+      {
+         MapMetadata map = (MapMetadata)metadata;
+         size += LIST_SIZE + estimate(map.getKeyType()) + estimate(map.getValueType()) + estimate(map.getEntries());
+      }
+      else if (metadata instanceof PropsMetadata)
+      {
+         size += LIST_SIZE + estimate(((PropsMetadata)metadata).getEntries());
+      }
+      return size;
+   }
+
+   private static long estimate(List<MapEntry> entries)
+   {
+      long size = 0;
+      for (MapEntry entry : entries)
+         size += OBJECT_SIZE + 2 * REFERENCE_SIZE + estimate(entry.getKey()) + estimate(entry.getValue());
+      return size;
+   }
+
+   private static long estimate(String value)
+   {
+      return value != null ? 40 + 2 * value.length() : 0;
+   }
+}
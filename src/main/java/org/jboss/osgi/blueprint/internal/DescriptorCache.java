@@ -0,0 +1,295 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent cache of scanned Blueprint descriptors.
+ * 
+ * The cache only serves the scan of the extender, which orders the containers and registers the placeholders 
+ * of lazy containers. The containers still parse their descriptors. 
+ * 
+ * Entries are stored in a compact binary form in the data area of the extender bundle, one file per bundle.
+ * An entry is valid for the bundle id, the bundle's last modified time and the content hash of every 
+ * descriptor it was built from, so that a descriptor that is edited in place is scanned again. 
+ * A warm restart reads the descriptors to hash them, but does not scan them.
+ * A bundle that carries a {@link CompiledDescriptor} is neither scanned nor cached.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class DescriptorCache implements BundleListener
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(DescriptorCache.class);
+
+   private static final int MAGIC = 0x42504443;
+   private static final int VERSION = 5;
+
+   private final DescriptorScanner scanner = new DescriptorScanner();
+   private final File cacheDir;
+   private final AtomicLong hits = new AtomicLong();
+   private final AtomicLong misses = new AtomicLong();
+   private final AtomicLong compiled = new AtomicLong();
+
+   /**
+    * Create the cache
+    * @param cacheDir the cache directory, or null if scanned descriptors should not be cached
+    */
+   DescriptorCache(File cacheDir)
+   {
+      this.cacheDir = cacheDir;
+      if (cacheDir != null)
+         cacheDir.mkdirs();
+   }
+
+   /**
+    * The number of descriptor infos that the extender scan found in the cache
+    */
+   long getHits()
+   {
+      return hits.get();
+   }
+
+   /**
+    * The number of descriptor infos that the extender scan had to build from the descriptors
+    */
+   long getMisses()
+   {
+      return misses.get();
+   }
+
+   /**
+    * The number of descriptor infos that were loaded from a {@link CompiledDescriptor}
+    */
+   long getCompiled()
+   {
+      return compiled.get();
+   }
+
+   /**
+    * Get the descriptor info for the given descriptor paths, either from the cache or by scanning the descriptors
+    */
+   DescriptorInfo getDescriptorInfo(Bundle bundle, List<Object> pathList) throws IOException
+   {
+      DescriptorInfo compiledInfo = CompiledDescriptor.load(bundle, pathList);
+      if (compiledInfo != null)
+      {
+         compiled.incrementAndGet();
+         return compiledInfo;
+      }
+
+      if (cacheDir == null)
+         return scanner.scan(bundle, pathList);
+
+      List<URL> urls = DescriptorScanner.getDescriptorURLs(bundle, pathList);
+      List<byte[]> contents = new ArrayList<byte[]>(urls.size());
+      List<String> hashes = new ArrayList<String>(urls.size());
+      for (URL url : urls)
+      {
+         byte[] content = readContent(url);
+         contents.add(content);
+         hashes.add(getContentHash(content));
+      }
+
+      File cacheFile = getCacheFile(bundle);
+      DescriptorInfo info = readEntry(cacheFile, bundle, urls, hashes);
+      if (info != null)
+      {
+         hits.incrementAndGet();
+         return info;
+      }
+
+      misses.incrementAndGet();
+      List<InputStream> inputs = new ArrayList<InputStream>(contents.size());
+      for (byte[] content : contents)
+         inputs.add(new ByteArrayInputStream(content));
+
+      info = scanner.scan(inputs);
+      writeEntry(cacheFile, bundle, urls, hashes, info);
+      return info;
+   }
+
+   /**
+    * Remove the cache entry of the given bundle, i.e. when its container is reloaded
+    */
+   void invalidate(Bundle bundle)
+   {
+      if (cacheDir != null)
+         getCacheFile(bundle).delete();
+   }
+
+   /**
+    * Remove the cache entry of an uninstalled bundle
+    */
+   public void bundleChanged(BundleEvent event)
+   {
+      if (event.getType() == BundleEvent.UNINSTALLED)
+         invalidate(event.getBundle());
+   }
+
+   private File getCacheFile(Bundle bundle)
+   {
+      return new File(cacheDir, bundle.getBundleId() + ".bin");
+   }
+
+   private DescriptorInfo readEntry(File cacheFile, Bundle bundle, List<URL> urls, List<String> hashes)
+   {
+      if (cacheFile.exists() == false)
+         return null;
+
+      try
+      {
+         DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+         try
+         {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+               return null;
+            if (in.readLong() != bundle.getBundleId() || in.readLong() != bundle.getLastModified())
+               return null;
+
+            int count = in.readUnsignedShort();
+            if (count != urls.size())
+               return null;
+
+            for (int i = 0; i < count; i++)
+            {
+               String path = in.readUTF();
+               String hash = in.readUTF();
+               if (path.equals(urls.get(i).getPath()) == false || hash.equals(hashes.get(i)) == false)
+                  return null;
+            }
+            return DescriptorInfo.readFrom(in);
+         }
+         finally
+         {
+            in.close();
+         }
+      }
+      catch (IOException ex)
+      {
+         log.debug("Cannot read descriptor cache entry: " + cacheFile, ex);
+         return null;
+      }
+   }
+
+   private void writeEntry(File cacheFile, Bundle bundle, List<URL> urls, List<String> hashes, DescriptorInfo info)
+   {
+      // Write to a temporary file first so that a concurrent reader never sees a partial entry
+      File tmpFile = new File(cacheDir, bundle.getBundleId() + ".tmp");
+      try
+      {
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+         try
+         {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(bundle.getBundleId());
+            out.writeLong(bundle.getLastModified());
+            out.writeShort(urls.size());
+            for (int i = 0; i < urls.size(); i++)
+            {
+               out.writeUTF(urls.get(i).getPath());
+               out.writeUTF(hashes.get(i));
+            }
+            info.writeTo(out);
+         }
+         finally
+         {
+            out.close();
+         }
+         
+         cacheFile.delete();
+         if (tmpFile.renameTo(cacheFile) == false)
+            log.debug("Cannot rename descriptor cache entry: " + tmpFile);
+      }
+      catch (IOException ex)
+      {
+         log.warn("Cannot write descriptor cache entry: " + cacheFile, ex);
+         tmpFile.delete();
+      }
+   }
+
+   private static byte[] readContent(URL url) throws IOException
+   {
+      InputStream input = url.openStream();
+      try
+      {
+         ByteArrayOutputStream out = new ByteArrayOutputStream();
+         byte[] buffer = new byte[4096];
+         int read;
+         while ((read = input.read(buffer)) != -1)
+            out.write(buffer, 0, read);
+         
+         return out.toByteArray();
+      }
+      finally
+      {
+         input.close();
+      }
+   }
+
+   private static String getContentHash(byte[] content)
+   {
+      try
+      {
+         MessageDigest digest = MessageDigest.getInstance("MD5");
+         byte[] hash = digest.digest(content);
+         StringBuilder builder = new StringBuilder(hash.length * 2);
+         for (byte b : hash)
+         {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+         }
+         return builder.toString();
+      }
+      catch (NoSuchAlgorithmException ex)
+      {
+         throw new IllegalStateException("MD5 not available", ex);
+      }
+   }
+}
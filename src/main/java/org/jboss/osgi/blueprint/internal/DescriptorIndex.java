@@ -0,0 +1,189 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.aries.blueprint.BlueprintConstants;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * An index of the Blueprint descriptor paths of every bundle.
+ * 
+ * The paths of a bundle are resolved once when it is resolved and reused on every start, until 
+ * the bundle is updated, unresolved or uninstalled. An entry is also discarded when the last 
+ * modified time of the bundle no longer matches.
+ * 
+ * The last path component in the Bundle-Blueprint header may contain wildcards, i.e. cfg/*.xml. 
+ * A path that ends with a slash stands for all .xml files in that directory.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class DescriptorIndex implements SynchronousBundleListener
+{
+   static final String DEFAULT_DIRECTORY = "OSGI-INF/blueprint/";
+   static final String DEFAULT_PATTERN = "*.xml";
+
+   private final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<Long, Entry>();
+
+   public void bundleChanged(BundleEvent event)
+   {
+      Bundle bundle = event.getBundle();
+      switch (event.getType())
+      {
+         case BundleEvent.RESOLVED:
+            // findEntries would resolve an INSTALLED bundle, so the index is only built once it is resolved
+            entries.put(bundle.getBundleId(), new Entry(bundle.getLastModified(), resolvePaths(bundle)));
+            break;
+         case BundleEvent.UPDATED:
+         case BundleEvent.UNRESOLVED:
+         case BundleEvent.UNINSTALLED:
+            entries.remove(bundle.getBundleId());
+            break;
+      }
+   }
+
+   /**
+    * Get the descriptor paths of the given bundle
+    * @return an unmodifiable list, which is empty if the bundle has no Blueprint descriptors
+    */
+   List<Object> getDescriptorPaths(Bundle bundle)
+   {
+      Entry entry = entries.get(bundle.getBundleId());
+      long lastModified = bundle.getLastModified();
+      if (entry == null || entry.lastModified != lastModified)
+      {
+         entry = new Entry(lastModified, resolvePaths(bundle));
+         entries.put(bundle.getBundleId(), entry);
+      }
+      return entry.paths;
+   }
+
+   /**
+    * Discard the index entry of the given bundle, i.e. when its descriptors changed on disk
+    */
+   void invalidate(Bundle bundle)
+   {
+      entries.remove(bundle.getBundleId());
+   }
+
+   /**
+    * The number of indexed bundles
+    */
+   int size()
+   {
+      return entries.size();
+   }
+
+   /**
+    * If a Bundle-Blueprint manifest header is defined, then this header contains a list of paths. 
+    * If this header is not defined, then resources ending in .xml in the bundle's
+    * OSGI-INF/blueprint directory must be used. These are the resources that
+    * would be found by calling the Bundle findEntries("OSGI-INF/blueprint", "*.xml", false) method.
+    */
+   static List<Object> resolvePaths(Bundle bundle)
+   {
+      List<Object> pathList = new ArrayList<Object>();
+
+      String descriptorPaths = (String)bundle.getHeaders().get(BlueprintConstants.BUNDLE_BLUEPRINT_HEADER);
+      if (descriptorPaths != null)
+      {
+         StringTokenizer tokenizer = new StringTokenizer(descriptorPaths, ",");
+         while (tokenizer.hasMoreTokens())
+         {
+            String path = tokenizer.nextToken();
+            int paramIndex = path.indexOf(';');
+            if (paramIndex >= 0)
+               path = path.substring(0, paramIndex);
+            
+            path = path.trim();
+            if (path.startsWith("/"))
+               path = path.substring(1);
+            if (path.length() == 0)
+               continue;
+
+            int slashIndex = path.lastIndexOf('/');
+            if (path.endsWith("/"))
+            {
+               findEntries(bundle, path, DEFAULT_PATTERN, pathList);
+            }
+            else if (path.indexOf('*', slashIndex + 1) >= 0)
+            {
+               String directory = path.substring(0, slashIndex + 1);
+               String pattern = path.substring(slashIndex + 1);
+               findEntries(bundle, directory, pattern, pathList);
+            }
+            else
+            {
+               pathList.add(path);
+            }
+         }
+      }
+      else
+      {
+         findEntries(bundle, DEFAULT_DIRECTORY, DEFAULT_PATTERN, pathList);
+      }
+
+      return Collections.unmodifiableList(pathList);
+   }
+
+   private static void findEntries(Bundle bundle, String directory, String pattern, List<Object> pathList)
+   {
+      // The entries are not recursive, so the path is the directory followed by the last URL path segment
+      String root = (directory.length() > 0 ? directory : "/");
+      Enumeration<?> foundEntries = bundle.findEntries(root, pattern, false);
+      if (foundEntries != null)
+      {
+         while (foundEntries.hasMoreElements())
+         {
+            String urlPath = ((URL)foundEntries.nextElement()).getPath();
+            String name = urlPath.substring(urlPath.lastIndexOf('/') + 1);
+            if (name.length() > 0)
+               pathList.add(directory + name);
+         }
+      }
+   }
+
+   private static class Entry
+   {
+      final long lastModified;
+      final List<Object> paths;
+
+      Entry(long lastModified, List<Object> paths)
+      {
+         this.lastModified = lastModified;
+         this.paths = paths;
+      }
+   }
+}
@@ -0,0 +1,265 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A summary of the Blueprint descriptors of a bundle. 
+ * 
+ * It holds the services that the bundle exports and the interfaces its references 
+ * point at, which is what the extender needs to order containers and to register 
+ * placeholders for lazily activated containers.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class DescriptorInfo
+{
+   static final DescriptorInfo EMPTY = new DescriptorInfo(null, null, null);
+   
+   private final List<ServiceInfo> services;
+   private final Set<String> exportedInterfaces;
+   private final Set<String> mandatoryReferences;
+   private final Set<String> optionalReferences;
+   private final Set<String> beanClasses;
+
+   DescriptorInfo(List<ServiceInfo> services, Set<String> mandatoryReferences, Set<String> optionalReferences)
+   {
+      this(services, mandatoryReferences, optionalReferences, null);
+   }
+
+   DescriptorInfo(List<ServiceInfo> services, Set<String> mandatoryReferences, Set<String> optionalReferences, Set<String> beanClasses)
+   {
+      Set<String> exports = new HashSet<String>();
+      if (services != null)
+      {
+         for (ServiceInfo service : services)
+            exports.addAll(service.getInterfaces());
+      }
+      
+      this.services = (services != null ? Collections.unmodifiableList(new ArrayList<ServiceInfo>(services)) : Collections.<ServiceInfo>emptyList());
+      this.exportedInterfaces = unmodifiableSet(exports);
+      this.mandatoryReferences = unmodifiableSet(mandatoryReferences);
+      this.optionalReferences = unmodifiableSet(optionalReferences);
+      this.beanClasses = unmodifiableSet(beanClasses);
+   }
+
+   /**
+    * The declared &lt;service&gt; elements
+    */
+   List<ServiceInfo> getServices()
+   {
+      return services;
+   }
+
+   /**
+    * The interfaces of all &lt;service&gt; elements
+    */
+   Set<String> getExportedInterfaces()
+   {
+      return exportedInterfaces;
+   }
+
+   /**
+    * The interfaces of all mandatory &lt;reference&gt; and &lt;reference-list&gt; elements
+    */
+   Set<String> getMandatoryReferences()
+   {
+      return mandatoryReferences;
+   }
+
+   /**
+    * The interfaces of all optional &lt;reference&gt; and &lt;reference-list&gt; elements
+    */
+   Set<String> getOptionalReferences()
+   {
+      return optionalReferences;
+   }
+
+   /**
+    * The classes of all &lt;bean&gt; elements that declare a class, in the order they were declared
+    * or, if the descriptors were compiled, in dependency order
+    */
+   Set<String> getBeanClasses()
+   {
+      return beanClasses;
+   }
+
+   /**
+    * True if one of the mandatory references of this descriptor is exported by the other descriptor
+    */
+   boolean dependsOn(DescriptorInfo other)
+   {
+      for (String exported : other.exportedInterfaces)
+      {
+         if (mandatoryReferences.contains(exported))
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * Write this descriptor info in the compact binary form
+    */
+   void writeTo(DataOutput out) throws IOException
+   {
+      out.writeShort(services.size());
+      for (ServiceInfo service : services)
+         service.writeTo(out);
+      
+      writeSet(out, mandatoryReferences);
+      writeSet(out, optionalReferences);
+      writeSet(out, beanClasses);
+   }
+
+   /**
+    * Read a descriptor info that was written by {@link #writeTo(DataOutput)}
+    */
+   static DescriptorInfo readFrom(DataInput in) throws IOException
+   {
+      int count = in.readUnsignedShort();
+      List<ServiceInfo> services = new ArrayList<ServiceInfo>(count);
+      for (int i = 0; i < count; i++)
+         services.add(ServiceInfo.readFrom(in));
+      
+      Set<String> mandatory = readSet(in);
+      Set<String> optional = readSet(in);
+      Set<String> beanClasses = readSet(in);
+      return new DescriptorInfo(services, mandatory, optional, beanClasses);
+   }
+
+   private static void writeSet(DataOutput out, Collection<String> set) throws IOException
+   {
+      out.writeShort(set.size());
+      for (String value : set)
+         out.writeUTF(value);
+   }
+
+   private static Set<String> readSet(DataInput in) throws IOException
+   {
+      int size = in.readUnsignedShort();
+      Set<String> set = new LinkedHashSet<String>(size);
+      for (int i = 0; i < size; i++)
+         set.add(in.readUTF());
+      return set;
+   }
+
+   private static Set<String> unmodifiableSet(Set<String> set)
+   {
+      if (set == null || set.isEmpty())
+         return Collections.emptySet();
+      
+      return Collections.unmodifiableSet(new LinkedHashSet<String>(set));
+   }
+
+   @Override
+   public String toString()
+   {
+      return "[exports=" + exportedInterfaces + ",mandatory=" + mandatoryReferences + ",optional=" + optionalReferences + "]";
+   }
+
+   /**
+    * A declared &lt;service&gt; element
+    */
+   static class ServiceInfo
+   {
+      private final List<String> interfaces;
+      private final int ranking;
+      private final Map<String, String> properties;
+
+      ServiceInfo(List<String> interfaces, int ranking, Map<String, String> properties)
+      {
+         this.interfaces = Collections.unmodifiableList(new ArrayList<String>(interfaces));
+         this.ranking = ranking;
+         this.properties = Collections.unmodifiableMap(new LinkedHashMap<String, String>(properties));
+      }
+
+      /**
+       * The explicitly declared interfaces. Services that use auto-export have none.
+       */
+      List<String> getInterfaces()
+      {
+         return interfaces;
+      }
+
+      int getRanking()
+      {
+         return ranking;
+      }
+
+      /**
+       * The service properties that have a simple string value
+       */
+      Map<String, String> getProperties()
+      {
+         return properties;
+      }
+
+      void writeTo(DataOutput out) throws IOException
+      {
+         writeSet(out, interfaces);
+         out.writeInt(ranking);
+         out.writeShort(properties.size());
+         for (Map.Entry<String, String> entry : properties.entrySet())
+         {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+         }
+      }
+
+      static ServiceInfo readFrom(DataInput in) throws IOException
+      {
+         int count = in.readUnsignedShort();
+         List<String> interfaces = new ArrayList<String>(count);
+         for (int i = 0; i < count; i++)
+            interfaces.add(in.readUTF());
+         
+         int ranking = in.readInt();
+         count = in.readUnsignedShort();
+         Map<String, String> properties = new LinkedHashMap<String, String>();
+         for (int i = 0; i < count; i++)
+            properties.put(in.readUTF(), in.readUTF());
+         
+         return new ServiceInfo(interfaces, ranking, properties);
+      }
+
+      @Override
+      public String toString()
+      {
+         return "[interfaces=" + interfaces + ",ranking=" + ranking + ",properties=" + properties + "]";
+      }
+   }
+}
\ No newline at end of file
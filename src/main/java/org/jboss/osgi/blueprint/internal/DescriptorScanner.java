@@ -0,0 +1,351 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jboss.osgi.blueprint.internal.DescriptorInfo.ServiceInfo;
+import org.osgi.framework.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans the Blueprint descriptors of a bundle for declared services, referenced interfaces and bean classes.
+ * 
+ * This is a single streaming StAX pass that does not build a DOM or any component metadata. 
+ * Elements are dispatched through a precompiled table of the Blueprint element names. Elements of 
+ * other namespaces are ignored, the namespace of an element is compared by identity first, 
+ * because parsers hand out the same string instance for the same namespace.
+ * The Blueprint container still parses the descriptors itself.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class DescriptorScanner
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(DescriptorScanner.class);
+
+   static final String BLUEPRINT_NAMESPACE = "http://www.osgi.org/xmlns/blueprint/v1.0.0";
+
+   private static final int BLUEPRINT = 1;
+   private static final int SERVICE = 2;
+   private static final int INTERFACES = 3;
+   private static final int VALUE = 4;
+   private static final int SERVICE_PROPERTIES = 5;
+   private static final int ENTRY = 6;
+   private static final int REFERENCE = 7;
+   private static final int BEAN = 8;
+
+   private static final Map<String, Integer> ELEMENTS = new HashMap<String, Integer>();
+   static
+   {
+      ELEMENTS.put("blueprint", BLUEPRINT);
+      ELEMENTS.put("service", SERVICE);
+      ELEMENTS.put("interfaces", INTERFACES);
+      ELEMENTS.put("value", VALUE);
+      ELEMENTS.put("service-properties", SERVICE_PROPERTIES);
+      ELEMENTS.put("entry", ENTRY);
+      ELEMENTS.put("reference", REFERENCE);
+      ELEMENTS.put("reference-list", REFERENCE);
+      ELEMENTS.put("bean", BEAN);
+   }
+
+   private final XMLInputFactory factory;
+
+   DescriptorScanner()
+   {
+      factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+      factory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+      factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+   }
+
+   /**
+    * Get the URLs of the given descriptor paths
+    * @param bundle the bundle that contains the descriptors
+    * @param pathList the descriptor paths as they are passed to the container
+    */
+   static List<URL> getDescriptorURLs(Bundle bundle, List<Object> pathList)
+   {
+      List<URL> urls = new ArrayList<URL>();
+      for (Object path : pathList)
+      {
+         URL url = (path instanceof URL ? (URL)path : bundle.getEntry(path.toString()));
+         if (url != null)
+            urls.add(url);
+         else
+            log.warn("Cannot find blueprint descriptor: " + path);
+      }
+      return urls;
+   }
+
+   /**
+    * Scan the given descriptor paths of the bundle
+    * @param bundle the bundle that contains the descriptors
+    * @param pathList the descriptor paths as they are passed to the container
+    */
+   DescriptorInfo scan(Bundle bundle, List<Object> pathList) throws IOException
+   {
+      List<InputStream> inputs = new ArrayList<InputStream>();
+      try
+      {
+         for (URL url : getDescriptorURLs(bundle, pathList))
+            inputs.add(url.openStream());
+         
+         return scan(inputs);
+      }
+      finally
+      {
+         for (InputStream input : inputs)
+            input.close();
+      }
+   }
+
+   /**
+    * Scan the given descriptor contents. The caller is responsible for closing the streams.
+    */
+   DescriptorInfo scan(List<InputStream> inputs) throws IOException
+   {
+      ScanHandler handler = new ScanHandler();
+      for (InputStream input : inputs)
+      {
+         XMLStreamReader reader = null;
+         try
+         {
+            reader = factory.createXMLStreamReader(input);
+            handler.scan(reader);
+         }
+         catch (XMLStreamException ex)
+         {
+            IOException ioex = new IOException("Cannot scan blueprint descriptor");
+            ioex.initCause(ex);
+            throw ioex;
+         }
+         finally
+         {
+            if (reader != null)
+            {
+               try
+               {
+                  reader.close();
+               }
+               catch (XMLStreamException ex)
+               {
+                  // ignore
+               }
+            }
+         }
+      }
+      return handler.getDescriptorInfo();
+   }
+
+   private static class ScanHandler
+   {
+      private final List<ServiceInfo> services = new ArrayList<ServiceInfo>();
+      private final Set<String> mandatory = new HashSet<String>();
+      private final Set<String> optional = new HashSet<String>();
+      private final Set<String> beanClasses = new LinkedHashSet<String>();
+      private final LinkedList<ServiceBuilder> serviceStack = new LinkedList<ServiceBuilder>();
+
+      private String defaultAvailability;
+      private StringBuilder value;
+      private String lastNamespace;
+      private boolean lastIsBlueprint;
+
+      DescriptorInfo getDescriptorInfo()
+      {
+         return new DescriptorInfo(services, mandatory, optional, beanClasses);
+      }
+
+      void scan(XMLStreamReader reader) throws XMLStreamException
+      {
+         while (reader.hasNext())
+         {
+            switch (reader.next())
+            {
+               case XMLStreamConstants.START_ELEMENT:
+                  if (isBlueprint(reader.getNamespaceURI()))
+                     startElement(getElement(reader), reader);
+                  break;
+               case XMLStreamConstants.END_ELEMENT:
+                  if (isBlueprint(reader.getNamespaceURI()))
+                     endElement(getElement(reader));
+                  break;
+               case XMLStreamConstants.CHARACTERS:
+               case XMLStreamConstants.CDATA:
+                  if (value != null)
+                     value.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                  break;
+            }
+         }
+      }
+
+      private boolean isBlueprint(String uri)
+      {
+         if (uri != lastNamespace)
+         {
+            lastNamespace = uri;
+            lastIsBlueprint = BLUEPRINT_NAMESPACE.equals(uri);
+         }
+         return lastIsBlueprint;
+      }
+
+      private static int getElement(XMLStreamReader reader)
+      {
+         Integer element = ELEMENTS.get(reader.getLocalName());
+         return element != null ? element : 0;
+      }
+
+      private void startElement(int element, XMLStreamReader reader)
+      {
+         ServiceBuilder service = serviceStack.isEmpty() ? null : serviceStack.getFirst();
+         switch (element)
+         {
+            case BLUEPRINT:
+               defaultAvailability = reader.getAttributeValue(null, "default-availability");
+               break;
+            case SERVICE:
+               ServiceBuilder builder = new ServiceBuilder();
+               builder.addInterface(reader.getAttributeValue(null, "interface"));
+               builder.ranking = reader.getAttributeValue(null, "ranking");
+               serviceStack.addFirst(builder);
+               break;
+            case INTERFACES:
+               if (service != null)
+                  service.inInterfaces = true;
+               break;
+            case VALUE:
+               if (service != null && service.inInterfaces)
+                  value = new StringBuilder();
+               break;
+            case SERVICE_PROPERTIES:
+               if (service != null)
+                  service.inProperties = true;
+               break;
+            case ENTRY:
+               if (service != null && service.inProperties)
+               {
+                  String key = reader.getAttributeValue(null, "key");
+                  String entryValue = reader.getAttributeValue(null, "value");
+                  if (key != null && entryValue != null)
+                     service.properties.put(key, entryValue);
+               }
+               break;
+            case REFERENCE:
+               String availability = reader.getAttributeValue(null, "availability");
+               if (availability == null)
+                  availability = defaultAvailability;
+
+               boolean isOptional = "optional".equals(availability);
+               String className = reader.getAttributeValue(null, "interface");
+               if (className != null && className.trim().length() > 0)
+                  (isOptional ? optional : mandatory).add(className.trim());
+               break;
+            case BEAN:
+               String beanClass = reader.getAttributeValue(null, "class");
+               if (beanClass != null && beanClass.trim().length() > 0)
+                  beanClasses.add(beanClass.trim());
+               break;
+         }
+      }
+
+      private void endElement(int element)
+      {
+         if (serviceStack.isEmpty())
+            return;
+
+         ServiceBuilder service = serviceStack.getFirst();
+         switch (element)
+         {
+            case SERVICE:
+               serviceStack.removeFirst();
+               services.add(service.build());
+               break;
+            case INTERFACES:
+               service.inInterfaces = false;
+               break;
+            case SERVICE_PROPERTIES:
+               service.inProperties = false;
+               break;
+            case VALUE:
+               if (value != null)
+               {
+                  service.addInterface(value.toString());
+                  value = null;
+               }
+               break;
+         }
+      }
+   }
+
+   private static class ServiceBuilder
+   {
+      final List<String> interfaces = new ArrayList<String>();
+      final Map<String, String> properties = new LinkedHashMap<String, String>();
+      String ranking;
+      boolean inInterfaces;
+      boolean inProperties;
+
+      void addInterface(String className)
+      {
+         if (className != null && className.trim().length() > 0 && interfaces.contains(className.trim()) == false)
+            interfaces.add(className.trim());
+      }
+
+      ServiceInfo build()
+      {
+         int rank = 0;
+         if (ranking != null)
+         {
+            try
+            {
+               rank = Integer.parseInt(ranking.trim());
+            }
+            catch (NumberFormatException ex)
+            {
+               // The container reports the invalid ranking
+            }
+         }
+         return new ServiceInfo(interfaces, rank, properties);
+      }
+   }
+}
@@ -0,0 +1,363 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ScheduledExecutorService} that keeps one-shot delayed tasks on a hashed wheel.
+ * 
+ * The containers schedule a grace period timeout each and cancel most of them when their references are satisfied. 
+ * On the wheel scheduling and cancelling is constant time, and a single periodic tick on the underlying 
+ * scheduler expires the tasks of one bucket, instead of a delay queue entry per container. A task fires 
+ * up to one tick late. 
+ * 
+ * The wheel buckets are only touched by the tick and by {@link #shutdownNow()}. New and cancelled tasks are handed over through queues.
+ * Immediate and periodic tasks are passed on to the underlying scheduler, which also runs the expired tasks.
+ * The underlying scheduler is not shut down with the wheel.
+ * 
+ * The wheel has no threads of its own. It is terminated as soon as it is shut down: {@link #shutdown()} waits 
+ * for a running tick, after that no task is handed to the underlying scheduler anymore. Expired tasks that were 
+ * already handed over belong to the underlying scheduler, the wheel does not wait for them. 
+ * {@link #shutdownNow()} returns the delayed tasks that have not expired yet, cancelled tasks are left out.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class HashedWheelScheduler extends AbstractExecutorService implements ScheduledExecutorService
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(HashedWheelScheduler.class);
+
+   private final ScheduledExecutorService delegate;
+   private final long tickMillis;
+   private final Set<WheelTask<?>>[] buckets;
+   private final int mask;
+   private final Queue<WheelTask<?>> added = new ConcurrentLinkedQueue<WheelTask<?>>();
+   private final Queue<WheelTask<?>> cancelled = new ConcurrentLinkedQueue<WheelTask<?>>();
+   private final AtomicInteger pending = new AtomicInteger();
+   private final long startTime;
+   private final ScheduledFuture<?> ticker;
+   // guarded by this
+   private long tick;
+   private volatile boolean shutdown;
+
+   /**
+    * Create the wheel and start its tick
+    * @param delegate the scheduler that runs the tick and the expired tasks
+    * @param tickMillis the duration of a tick in milliseconds
+    * @param wheelSize the number of buckets, which is rounded up to a power of two
+    */
+   @SuppressWarnings("unchecked")
+   HashedWheelScheduler(ScheduledExecutorService delegate, long tickMillis, int wheelSize)
+   {
+      if (delegate == null)
+         throw new IllegalArgumentException("Null delegate");
+      if (tickMillis <= 0)
+         throw new IllegalArgumentException("Invalid tick: " + tickMillis);
+
+      int size = 1;
+      while (size < wheelSize)
+         size <<= 1;
+
+      this.delegate = delegate;
+      this.tickMillis = tickMillis;
+      this.buckets = new Set[size];
+      for (int i = 0; i < size; i++)
+         buckets[i] = new LinkedHashSet<WheelTask<?>>();
+      this.mask = size - 1;
+      this.startTime = System.currentTimeMillis();
+
+      this.ticker = delegate.scheduleAtFixedRate(new Runnable()
+      {
+         public void run()
+         {
+            expireTimeouts();
+         }
+      }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * The number of delayed tasks on the wheel
+    */
+   int getPendingCount()
+   {
+      return pending.get();
+   }
+
+   public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit)
+   {
+      if (command == null)
+         throw new IllegalArgumentException("Null command");
+
+      return schedule(new FutureTask<Object>(command, null), delay, unit);
+   }
+
+   public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit)
+   {
+      if (callable == null)
+         throw new IllegalArgumentException("Null callable");
+
+      return schedule(new FutureTask<V>(callable), delay, unit);
+   }
+
+   private <V> ScheduledFuture<V> schedule(FutureTask<V> future, long delay, TimeUnit unit)
+   {
+      if (shutdown == true)
+         throw new RejectedExecutionException("Scheduler shut down");
+
+      WheelTask<V> task = new WheelTask<V>(future, System.currentTimeMillis() + unit.toMillis(Math.max(0, delay)));
+      pending.incrementAndGet();
+      added.add(task);
+      return task;
+   }
+
+   public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit)
+   {
+      return delegate.scheduleAtFixedRate(command, initialDelay, period, unit);
+   }
+
+   public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit)
+   {
+      return delegate.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+   }
+
+   public void execute(Runnable command)
+   {
+      if (shutdown == true)
+         throw new RejectedExecutionException("Scheduler shut down");
+
+      delegate.execute(command);
+   }
+
+   /**
+    * Stop the tick and drop the delayed tasks. The underlying scheduler is owned by the caller.
+    */
+   public synchronized void shutdown()
+   {
+      shutdown = true;
+      ticker.cancel(false);
+      notifyAll();
+   }
+
+   /**
+    * Stop the tick and return the delayed tasks that did not expire
+    */
+   public synchronized List<Runnable> shutdownNow()
+   {
+      shutdown();
+
+      List<Runnable> result = new ArrayList<Runnable>();
+      WheelTask<?> task;
+      while ((task = added.poll()) != null)
+         drain(task, result);
+
+      for (Set<WheelTask<?>> bucket : buckets)
+      {
+         for (WheelTask<?> bucketTask : bucket)
+            drain(bucketTask, result);
+         bucket.clear();
+      }
+      cancelled.clear();
+      return result;
+   }
+
+   // guarded by this
+   private void drain(WheelTask<?> task, List<Runnable> result)
+   {
+      pending.decrementAndGet();
+      task.bucket = null;
+      if (task.isCancelled() == false)
+         result.add(task.future);
+   }
+
+   public boolean isShutdown()
+   {
+      return shutdown;
+   }
+
+   /**
+    * Same as {@link #isShutdown()}, a shut down wheel hands over no more tasks
+    */
+   public boolean isTerminated()
+   {
+      return shutdown;
+   }
+
+   /**
+    * Wait until the wheel is shut down. Expired tasks that run on the underlying scheduler are not waited for.
+    */
+   public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+   {
+      long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+      while (shutdown == false)
+      {
+         long remaining = deadline - System.currentTimeMillis();
+         if (remaining <= 0)
+            return false;
+
+         wait(remaining);
+      }
+      return true;
+   }
+
+   /**
+    * Run by the tick, never concurrently with itself or the shutdown
+    */
+   private synchronized void expireTimeouts()
+   {
+      if (shutdown == true)
+         return;
+
+      long now = System.currentTimeMillis();
+      long currentTick = (now - startTime) / tickMillis;
+
+      WheelTask<?> task;
+      while ((task = cancelled.poll()) != null)
+      {
+         if (task.bucket != null && task.bucket.remove(task))
+            pending.decrementAndGet();
+         task.bucket = null;
+      }
+
+      while ((task = added.poll()) != null)
+      {
+         if (task.isCancelled())
+         {
+            pending.decrementAndGet();
+            continue;
+         }
+         long deadlineTick = Math.max(currentTick, (task.deadline - startTime + tickMillis - 1) / tickMillis);
+         task.bucket = buckets[(int)(deadlineTick & mask)];
+         task.bucket.add(task);
+      }
+
+      // Catch up with the ticks that were missed, but never go round the wheel more than once
+      long from = Math.max(tick, currentTick - mask);
+      for (long i = from; i <= currentTick; i++)
+      {
+         Iterator<WheelTask<?>> it = buckets[(int)(i & mask)].iterator();
+         while (it.hasNext())
+         {
+            task = it.next();
+            if (task.deadline <= now)
+            {
+               it.remove();
+               task.bucket = null;
+               pending.decrementAndGet();
+               fire(task);
+            }
+         }
+      }
+      tick = currentTick + 1;
+   }
+
+   private void fire(WheelTask<?> task)
+   {
+      try
+      {
+         delegate.execute(task.future);
+      }
+      catch (RejectedExecutionException ex)
+      {
+         log.debug("Cannot run expired task: " + task.future, ex);
+      }
+   }
+
+   /**
+    * A delayed task on the wheel
+    */
+   private class WheelTask<V> implements ScheduledFuture<V>
+   {
+      private final FutureTask<V> future;
+      private final long deadline;
+      // guarded by the scheduler
+      private Set<WheelTask<?>> bucket;
+
+      WheelTask(FutureTask<V> future, long deadline)
+      {
+         this.future = future;
+         this.deadline = deadline;
+      }
+
+      public long getDelay(TimeUnit unit)
+      {
+         return unit.convert(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+      }
+
+      public int compareTo(Delayed other)
+      {
+         long diff = getDelay(TimeUnit.MILLISECONDS) - other.getDelay(TimeUnit.MILLISECONDS);
+         return (diff < 0 ? -1 : (diff > 0 ? 1 : 0));
+      }
+
+      public boolean cancel(boolean mayInterruptIfRunning)
+      {
+         boolean result = future.cancel(mayInterruptIfRunning);
+         if (result == true)
+            cancelled.add(this);
+         return result;
+      }
+
+      public boolean isCancelled()
+      {
+         return future.isCancelled();
+      }
+
+      public boolean isDone()
+      {
+         return future.isDone();
+      }
+
+      public V get() throws InterruptedException, ExecutionException
+      {
+         return future.get();
+      }
+
+      public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+      {
+         return future.get(timeout, unit);
+      }
+   }
+}
@@ -0,0 +1,298 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.osgi.blueprint.internal.DescriptorInfo.ServiceInfo;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceFactory;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+import org.osgi.service.blueprint.container.BlueprintListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Defers the creation of Blueprint containers until one of their services is requested.
+ * 
+ * A container is only deferred if every declared &lt;service&gt; has explicit interfaces, the interfaces of 
+ * an auto-export service are not known before the container is created. For every service a placeholder 
+ * {@link ServiceFactory} is registered on behalf of the bundle. The first {@link ServiceFactory#getService(Bundle, ServiceRegistration)} 
+ * schedules the container and waits for it to be created, at most for the activation timeout 
+ * ({@link org.jboss.osgi.blueprint.BlueprintProperties#ACTIVATION_TIMEOUT}, 30 seconds by default). 
+ * The placeholder then hands out the real service and all placeholders are unregistered. If the container 
+ * is not created in time the request gets null.
+ * 
+ * A request that comes from a bootstrap thread, i.e. while another container is created, does not wait. 
+ * The bootstrap pool may have no thread left to create the requested container. The placeholder returns 
+ * null instead and the requesting container sees the real service once it is registered.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class LazyActivator implements BlueprintListener
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(LazyActivator.class);
+
+   /** The service property that marks a placeholder registration */
+   static final String PLACEHOLDER_PROPERTY = "org.jboss.osgi.blueprint.placeholder";
+
+   private final BootstrapScheduler bootstrap;
+   private final long timeout;
+   private final Map<Bundle, Activation> activations = new ConcurrentHashMap<Bundle, Activation>();
+
+   /**
+    * Create the lazy activator
+    * @param bootstrap the scheduler that creates the containers on demand
+    * @param timeout the time in milliseconds a service request from a non-bootstrap thread waits for the container
+    */
+   LazyActivator(BootstrapScheduler bootstrap, long timeout)
+   {
+      this.bootstrap = bootstrap;
+      this.timeout = timeout;
+   }
+
+   /**
+    * Register the placeholders for the services of the given bundle
+    * @return false if the bundle does not declare any service, or a service without explicit interfaces, 
+    *    in which case its container should be created eagerly
+    */
+   boolean register(Bundle bundle, List<Object> pathList, DescriptorInfo info)
+   {
+      List<ServiceInfo> services = info.getServices();
+      if (services.isEmpty())
+         return false;
+
+      // A consumer of an auto-export service would never find a placeholder that activates the container
+      for (ServiceInfo service : services)
+      {
+         if (service.getInterfaces().isEmpty())
+            return false;
+      }
+
+      Activation activation = new Activation(bundle, pathList);
+      activations.put(bundle, activation);
+
+      BundleContext context = bundle.getBundleContext();
+      for (ServiceInfo service : services)
+      {
+         Dictionary<String, Object> props = new Hashtable<String, Object>();
+         for (Map.Entry<String, String> entry : service.getProperties().entrySet())
+            props.put(entry.getKey(), entry.getValue());
+         
+         props.put(Constants.SERVICE_RANKING, service.getRanking());
+         props.put(PLACEHOLDER_PROPERTY, Boolean.TRUE);
+
+         String[] interfaces = service.getInterfaces().toArray(new String[service.getInterfaces().size()]);
+         ServiceRegistration registration = context.registerService(interfaces, new Placeholder(activation, interfaces), props);
+         synchronized (activation.registrations)
+         {
+            activation.registrations.add(registration);
+         }
+      }
+      log.debug("Registered " + services.size() + " lazy placeholder(s) for: " + bundle);
+      return true;
+   }
+
+   /**
+    * Forget the lazy activation of a stopping bundle
+    */
+   void cancel(Bundle bundle)
+   {
+      Activation activation = activations.remove(bundle);
+      if (activation != null)
+         activation.release();
+   }
+
+   public void blueprintEvent(BlueprintEvent event)
+   {
+      int type = event.getType();
+      if (type == BlueprintEvent.CREATED || type == BlueprintEvent.FAILURE || type == BlueprintEvent.DESTROYED)
+      {
+         Activation activation = activations.remove(event.getBundle());
+         if (activation != null)
+         {
+            activation.created = (type == BlueprintEvent.CREATED);
+            activation.release();
+         }
+      }
+   }
+
+   private class Activation
+   {
+      final Bundle bundle;
+      final List<Object> pathList;
+      final List<ServiceRegistration> registrations = new ArrayList<ServiceRegistration>();
+      final AtomicBoolean scheduled = new AtomicBoolean();
+      final CountDownLatch done = new CountDownLatch(1);
+      volatile boolean created;
+
+      Activation(Bundle bundle, List<Object> pathList)
+      {
+         this.bundle = bundle;
+         this.pathList = pathList;
+      }
+
+      void activate()
+      {
+         if (scheduled.compareAndSet(false, true))
+         {
+            log.debug("Activate lazy blueprint container for: " + bundle);
+            bootstrap.schedule(bundle, pathList);
+         }
+      }
+
+      boolean await() throws InterruptedException
+      {
+         return done.await(timeout, TimeUnit.MILLISECONDS) && created;
+      }
+
+      void release()
+      {
+         done.countDown();
+         List<ServiceRegistration> copy;
+         synchronized (registrations)
+         {
+            copy = new ArrayList<ServiceRegistration>(registrations);
+            registrations.clear();
+         }
+         for (ServiceRegistration registration : copy)
+         {
+            try
+            {
+               registration.unregister();
+            }
+            catch (IllegalStateException ex)
+            {
+               // already unregistered with the bundle
+            }
+         }
+      }
+   }
+
+   private class Placeholder implements ServiceFactory
+   {
+      private final Activation activation;
+      private final String[] interfaces;
+      private final Map<Bundle, ServiceReference> delegates = new HashMap<Bundle, ServiceReference>();
+
+      Placeholder(Activation activation, String[] interfaces)
+      {
+         this.activation = activation;
+         this.interfaces = interfaces;
+      }
+
+      public Object getService(Bundle requester, ServiceRegistration registration)
+      {
+         activation.activate();
+         
+         // The container of the bundle itself must not wait for its own creation
+         if (requester.equals(activation.bundle))
+            return null;
+         
+         if (bootstrap.isBootstrapThread())
+         {
+            log.debug("Lazy blueprint container not yet created for: " + activation.bundle);
+            return null;
+         }
+         
+         try
+         {
+            if (activation.await() == false)
+            {
+               log.warn("Lazy blueprint container not created for: " + activation.bundle);
+               return null;
+            }
+         }
+         catch (InterruptedException ex)
+         {
+            Thread.currentThread().interrupt();
+            return null;
+         }
+
+         ServiceReference sref = findService();
+         if (sref == null)
+         {
+            log.warn("Cannot find service " + Arrays.asList(interfaces) + " in: " + activation.bundle);
+            return null;
+         }
+
+         BundleContext context = requester.getBundleContext();
+         Object service = context.getService(sref);
+         if (service != null)
+         {
+            synchronized (delegates)
+            {
+               delegates.put(requester, sref);
+            }
+         }
+         return service;
+      }
+
+      public void ungetService(Bundle requester, ServiceRegistration registration, Object service)
+      {
+         ServiceReference sref;
+         synchronized (delegates)
+         {
+            sref = delegates.remove(requester);
+         }
+         BundleContext context = requester.getBundleContext();
+         if (sref != null && context != null)
+            context.ungetService(sref);
+      }
+
+      private ServiceReference findService()
+      {
+         ServiceReference[] srefs = activation.bundle.getRegisteredServices();
+         if (srefs == null)
+            return null;
+
+         for (ServiceReference sref : srefs)
+         {
+            if (sref.getProperty(PLACEHOLDER_PROPERTY) != null)
+               continue;
+
+            List<String> classes = Arrays.asList((String[])sref.getProperty(Constants.OBJECTCLASS));
+            if (classes.containsAll(Arrays.asList(interfaces)))
+               return sref;
+         }
+         return null;
+      }
+   }
+}
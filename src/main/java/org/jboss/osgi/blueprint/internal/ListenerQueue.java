@@ -0,0 +1,313 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.osgi.blueprint.BlueprintBatchListener;
+import org.jboss.osgi.blueprint.ListenerStatistics;
+import org.osgi.framework.Bundle;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+import org.osgi.service.blueprint.container.BlueprintListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded, ordered queue of events for a single {@link BlueprintListener}.
+ * 
+ * Events are delivered in the order they were offered, by at most one delivery thread at a time. 
+ * A slow listener only delays its own queue. Offering an event never blocks, if the queue is full 
+ * the event is dropped for this listener. 
+ * 
+ * While the current container states are replayed to a new listener, offered events are buffered. 
+ * The replay is queued as a single delivery, followed by the buffered events. 
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class ListenerQueue implements Runnable
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(ListenerQueue.class);
+
+   private final BlueprintListener listener;
+   private final BlockingQueue<Delivery> queue;
+   private final Executor executor;
+   private final long timeout;
+   private final AtomicBoolean scheduled = new AtomicBoolean();
+   private volatile boolean closed;
+   private volatile long deliveryStart;
+   private volatile boolean replaying;
+   private List<BlueprintEvent> replayBuffer;
+
+   private final AtomicLong delivered = new AtomicLong();
+   private final AtomicLong dropped = new AtomicLong();
+   private final AtomicLong totalLatency = new AtomicLong();
+   private final AtomicLong maxLatency = new AtomicLong();
+
+   /**
+    * Create the queue
+    * @param listener the listener to deliver to
+    * @param executor the executor that runs the deliveries
+    * @param capacity the maximum number of pending events
+    * @param timeout the time in milliseconds a single delivery may take before the listener is considered stalled
+    */
+   ListenerQueue(BlueprintListener listener, Executor executor, int capacity, long timeout)
+   {
+      this.listener = listener;
+      this.executor = executor;
+      this.queue = new ArrayBlockingQueue<Delivery>(Math.max(1, capacity));
+      this.timeout = timeout;
+   }
+
+   BlueprintListener getListener()
+   {
+      return listener;
+   }
+
+   /**
+    * Offer an event for delivery
+    * @return false if the event was dropped
+    */
+   boolean offer(BlueprintEvent event)
+   {
+      if (closed)
+         return false;
+
+      if (replaying)
+      {
+         synchronized (this)
+         {
+            if (replayBuffer != null)
+            {
+               replayBuffer.add(event);
+               return true;
+            }
+         }
+      }
+
+      return enqueue(new Delivery(event, null));
+   }
+
+   /**
+    * Buffer the offered events until {@link #endReplay(List)}. 
+    * Must be called before the queue is visible to the emitting threads.
+    */
+   synchronized void beginReplay()
+   {
+      replayBuffer = new ArrayList<BlueprintEvent>();
+      replaying = true;
+   }
+
+   /**
+    * Queue the replay events, followed by the events that were offered since {@link #beginReplay()}. 
+    * A replay event is skipped if a live event of the same bundle was offered in the meantime.
+    * @param snapshot the replay events of the container states, taken after {@link #beginReplay()}
+    */
+   synchronized void endReplay(List<BlueprintEvent> snapshot)
+   {
+      List<BlueprintEvent> buffer = replayBuffer;
+      if (buffer == null)
+         return;
+
+      List<BlueprintEvent> replay = snapshot;
+      if (buffer.isEmpty() == false)
+      {
+         Set<Bundle> superseded = new HashSet<Bundle>();
+         for (BlueprintEvent event : buffer)
+            superseded.add(event.getBundle());
+
+         replay = new ArrayList<BlueprintEvent>(snapshot.size());
+         for (BlueprintEvent event : snapshot)
+         {
+            if (superseded.contains(event.getBundle()) == false)
+               replay.add(event);
+         }
+      }
+
+      if (replay.isEmpty() == false)
+         enqueue(new Delivery(null, Collections.unmodifiableList(replay)));
+
+      for (BlueprintEvent event : buffer)
+         enqueue(new Delivery(event, null));
+
+      // An offer that sees the flag cleared must come after the replay, one that does not waits for the monitor
+      replayBuffer = null;
+      replaying = false;
+   }
+
+   private boolean enqueue(Delivery delivery)
+   {
+      if (closed)
+         return false;
+
+      if (queue.offer(delivery) == false)
+      {
+         dropped.incrementAndGet();
+         log.warn("Listener queue full, dropping event for: " + listener);
+         return false;
+      }
+
+      if (scheduled.compareAndSet(false, true))
+      {
+         try
+         {
+            executor.execute(this);
+         }
+         catch (RejectedExecutionException ree)
+         {
+            // The event stays queued until the next offer schedules a delivery
+            scheduled.set(false);
+            log.warn("Delivery rejected for: " + listener, ree);
+         }
+      }
+      return true;
+   }
+
+   /**
+    * True if the current delivery takes longer than the timeout
+    */
+   boolean isStalled()
+   {
+      long start = deliveryStart;
+      return start != 0 && System.currentTimeMillis() - start > timeout;
+   }
+
+   /**
+    * True if the listener failed or the queue was closed
+    */
+   boolean isClosed()
+   {
+      return closed;
+   }
+
+   /**
+    * Stop delivering events and discard the pending ones
+    */
+   void close()
+   {
+      closed = true;
+      queue.clear();
+   }
+
+   public void run()
+   {
+      while (true)
+      {
+         Delivery delivery;
+         while (closed == false && (delivery = queue.poll()) != null)
+         {
+            deliver(delivery);
+         }
+
+         scheduled.set(false);
+
+         // Another event may have been offered after the last poll
+         if (closed || queue.isEmpty() || scheduled.compareAndSet(false, true) == false)
+            break;
+      }
+   }
+
+   private void deliver(Delivery delivery)
+   {
+      try
+      {
+         if (delivery.batch == null)
+         {
+            deliveryStart = System.currentTimeMillis();
+            listener.blueprintEvent(delivery.event);
+            recordLatency(delivery, 1);
+         }
+         else if (listener instanceof BlueprintBatchListener)
+         {
+            deliveryStart = System.currentTimeMillis();
+            ((BlueprintBatchListener)listener).blueprintEvents(delivery.batch);
+            recordLatency(delivery, delivery.batch.size());
+         }
+         else
+         {
+            // Every event of the replay is measured against the timeout on its own
+            for (BlueprintEvent event : delivery.batch)
+            {
+               deliveryStart = System.currentTimeMillis();
+               listener.blueprintEvent(event);
+               recordLatency(delivery, 1);
+            }
+         }
+      }
+      catch (Throwable th)
+      {
+         log.warn("Listener caused an exception, will be ignored", th);
+         close();
+      }
+      finally
+      {
+         deliveryStart = 0;
+      }
+   }
+
+   /**
+    * Record the latency from the offer to the delivery for the given number of events
+    */
+   private void recordLatency(Delivery delivery, int count)
+   {
+      long latency = (System.nanoTime() - delivery.offered) / 1000000;
+      delivered.addAndGet(count);
+      totalLatency.addAndGet(latency * count);
+
+      long max = maxLatency.get();
+      while (latency > max && maxLatency.compareAndSet(max, latency) == false)
+         max = maxLatency.get();
+   }
+
+   ListenerStatistics getStatistics()
+   {
+      long count = delivered.get();
+      long average = count > 0 ? totalLatency.get() / count : 0;
+      return new ListenerStatistics(listener.toString(), queue.size(), count, dropped.get(), average, maxLatency.get());
+   }
+
+   private static class Delivery
+   {
+      final BlueprintEvent event;
+      final List<BlueprintEvent> batch;
+      final long offered = System.nanoTime();
+
+      Delivery(BlueprintEvent event, List<BlueprintEvent> batch)
+      {
+         this.event = event;
+         this.batch = batch;
+      }
+   }
+}
@@ -0,0 +1,290 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.osgi.framework.AllServiceListener;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.framework.Filter;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A shared index of the filtered service listeners of all Blueprint containers.
+ * 
+ * The index is registered as the only framework service listener for the reference recipes of all 
+ * containers, see {@link ContainerBundleContext}. Their listeners are keyed by the objectClass that their 
+ * filter requires, so that a service event is only evaluated against the filters that can match one of 
+ * its classes. Filters that do not require a single objectClass are evaluated for every event.
+ * 
+ * Like the framework, the index only delivers an event to a plain {@link ServiceListener} if the 
+ * owning bundle sees the same classes as the service. A MODIFIED event of a service that no longer 
+ * matches is delivered as MODIFIED_ENDMATCH, also if the service did not match before.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class ReferenceIndex implements AllServiceListener
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(ReferenceIndex.class);
+
+   private static final String OBJECTCLASS_PREFIX = "(" + Constants.OBJECTCLASS + "=";
+
+   private final Map<String, List<Registration>> indexed = new ConcurrentHashMap<String, List<Registration>>();
+   private final List<Registration> unindexed = new CopyOnWriteArrayList<Registration>();
+
+   /**
+    * Add or replace the listener of the given bundle
+    */
+   synchronized void addServiceListener(Bundle owner, ServiceListener listener, Filter filter)
+   {
+      removeServiceListener(owner, listener);
+
+      String objectClass = getObjectClass(filter.toString());
+      Registration registration = new Registration(owner, listener, filter);
+      if (objectClass != null)
+      {
+         List<Registration> list = indexed.get(objectClass);
+         if (list == null)
+         {
+            list = new CopyOnWriteArrayList<Registration>();
+            indexed.put(objectClass, list);
+         }
+         list.add(registration);
+      }
+      else
+      {
+         unindexed.add(registration);
+      }
+   }
+
+   synchronized void removeServiceListener(Bundle owner, ServiceListener listener)
+   {
+      removeIf(owner, listener);
+   }
+
+   /**
+    * Remove all listeners of the given bundle, i.e. when its container is destroyed
+    */
+   synchronized void removeAll(Bundle owner)
+   {
+      removeIf(owner, null);
+   }
+
+   private void removeIf(Bundle owner, ServiceListener listener)
+   {
+      Iterator<Map.Entry<String, List<Registration>>> it = indexed.entrySet().iterator();
+      while (it.hasNext())
+      {
+         List<Registration> list = it.next().getValue();
+         remove(list, owner, listener);
+         if (list.isEmpty())
+            it.remove();
+      }
+      remove(unindexed, owner, listener);
+   }
+
+   private static void remove(List<Registration> list, Bundle owner, ServiceListener listener)
+   {
+      List<Registration> removed = new ArrayList<Registration>();
+      for (Registration registration : list)
+      {
+         if (registration.owner == owner && (listener == null || registration.listener == listener))
+            removed.add(registration);
+      }
+      list.removeAll(removed);
+   }
+
+   /**
+    * The number of registered listeners
+    */
+   int size()
+   {
+      int size = unindexed.size();
+      for (List<Registration> list : indexed.values())
+         size += list.size();
+      return size;
+   }
+
+   public void serviceChanged(ServiceEvent event)
+   {
+      ServiceReference sref = event.getServiceReference();
+      String[] classes = (String[])sref.getProperty(Constants.OBJECTCLASS);
+
+      Collection<Registration> candidates;
+      if (classes == null || classes.length == 0)
+      {
+         candidates = unindexed;
+      }
+      else if (classes.length == 1)
+      {
+         List<Registration> list = indexed.get(classes[0]);
+         if (list == null)
+            candidates = unindexed;
+         else if (unindexed.isEmpty())
+            candidates = list;
+         else
+         {
+            candidates = new ArrayList<Registration>(list);
+            candidates.addAll(unindexed);
+         }
+      }
+      else
+      {
+         // A registration that is indexed by more than one of the classes is only called once
+         Set<Registration> set = new LinkedHashSet<Registration>();
+         for (String className : classes)
+         {
+            List<Registration> list = indexed.get(className);
+            if (list != null)
+               set.addAll(list);
+         }
+         set.addAll(unindexed);
+         candidates = set;
+      }
+
+      for (Registration registration : candidates)
+         registration.serviceChanged(event, classes);
+   }
+
+   /**
+    * Get the objectClass that the filter requires, i.e. (objectClass=a.B) or (&amp;(objectClass=a.B)(x=y))
+    * @return null if the filter does not require exactly one objectClass without wildcards
+    */
+   static String getObjectClass(String filter)
+   {
+      if (filter == null)
+         return null;
+
+      filter = filter.trim();
+      List<String> terms = new ArrayList<String>();
+      if (filter.startsWith("(&"))
+      {
+         int depth = 0;
+         int start = -1;
+         for (int i = 2; i < filter.length() - 1; i++)
+         {
+            char ch = filter.charAt(i);
+            if (ch == '\\')
+            {
+               i++;
+            }
+            else if (ch == '(')
+            {
+               if (depth++ == 0)
+                  start = i;
+            }
+            else if (ch == ')')
+            {
+               if (--depth == 0)
+                  terms.add(filter.substring(start, i + 1));
+            }
+         }
+      }
+      else
+      {
+         terms.add(filter);
+      }
+
+      String result = null;
+      for (String term : terms)
+      {
+         if (term.regionMatches(true, 0, OBJECTCLASS_PREFIX, 0, OBJECTCLASS_PREFIX.length()) && term.endsWith(")"))
+         {
+            String value = term.substring(OBJECTCLASS_PREFIX.length(), term.length() - 1).trim();
+            if (result != null || value.length() == 0 || value.indexOf('*') >= 0 || value.indexOf('\\') >= 0)
+               return null;
+
+            result = value;
+         }
+      }
+      return result;
+   }
+
+   private static class Registration
+   {
+      final Bundle owner;
+      final ServiceListener listener;
+      final Filter filter;
+
+      Registration(Bundle owner, ServiceListener listener, Filter filter)
+      {
+         this.owner = owner;
+         this.listener = listener;
+         this.filter = filter;
+      }
+
+      void serviceChanged(ServiceEvent event, String[] classes)
+      {
+         ServiceReference sref = event.getServiceReference();
+         if ((listener instanceof AllServiceListener) == false && isAssignable(sref, classes) == false)
+            return;
+
+         ServiceEvent delivered = event;
+         if (filter.match(sref) == false)
+         {
+            if (event.getType() != ServiceEvent.MODIFIED)
+               return;
+
+            delivered = new ServiceEvent(ServiceEvent.MODIFIED_ENDMATCH, sref);
+         }
+
+         try
+         {
+            listener.serviceChanged(delivered);
+         }
+         catch (RuntimeException ex)
+         {
+            log.warn("Service listener of " + owner + " caused an exception", ex);
+         }
+      }
+
+      private boolean isAssignable(ServiceReference sref, String[] classes)
+      {
+         if (classes != null)
+         {
+            for (String className : classes)
+            {
+               if (sref.isAssignableTo(owner, className) == false)
+                  return false;
+            }
+         }
+         return true;
+      }
+   }
+}
@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.blueprint.container.BlueprintContainer;
+import org.osgi.service.blueprint.reflect.ServiceReferenceMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the bundles that provide the services a Blueprint container references.
+ * 
+ * The registered services are matched against the interface, filter and component name of every 
+ * &lt;reference&gt; and &lt;reference-list&gt; of the container, mandatory or optional, bound or not. 
+ * The services that the bundle currently uses are added, which covers programmatic lookups.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class ReferenceProviders
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(ReferenceProviders.class);
+
+   /** The service property that Blueprint sets to the id of the exporting component */
+   private static final String COMPONENT_NAME = "osgi.service.blueprint.compname";
+
+   /**
+    * Get the other bundles that provide a service the container references
+    * @param bundle the bundle of the container
+    * @param container the container, or null if only the services in use are known
+    * @return the providers, which is empty if the bundle is no longer active
+    */
+   static Set<Bundle> getProviders(Bundle bundle, BlueprintContainer container)
+   {
+      Set<Bundle> providers = new HashSet<Bundle>();
+      try
+      {
+         BundleContext context = bundle.getBundleContext();
+         if (container != null && context != null)
+         {
+            for (ServiceReferenceMetadata metadata : container.getMetadata(ServiceReferenceMetadata.class))
+            {
+               String filter = getFilter(metadata);
+               if (filter != null)
+                  addProviders(bundle, context.getServiceReferences(null, filter), providers);
+            }
+         }
+         addProviders(bundle, bundle.getServicesInUse(), providers);
+      }
+      catch (InvalidSyntaxException ex)
+      {
+         log.debug("Cannot match the references of: " + bundle, ex);
+      }
+      catch (IllegalStateException ex)
+      {
+         // The bundle was stopped or uninstalled
+      }
+      return providers;
+   }
+
+   /**
+    * Get the filter that matches the services of the given reference
+    * @return null if the reference neither names an interface, a filter nor a component
+    */
+   static String getFilter(ServiceReferenceMetadata metadata)
+   {
+      StringBuilder builder = new StringBuilder("(&");
+      int length = builder.length();
+      if (metadata.getInterface() != null)
+         builder.append("(" + Constants.OBJECTCLASS + "=").append(metadata.getInterface()).append(")");
+
+      String filter = metadata.getFilter();
+      if (filter != null && filter.trim().length() > 0)
+      {
+         filter = filter.trim();
+         builder.append(filter.startsWith("(") ? filter : "(" + filter + ")");
+      }
+
+      if (metadata.getComponentName() != null)
+         builder.append("(" + COMPONENT_NAME + "=").append(metadata.getComponentName()).append(")");
+
+      if (builder.length() == length)
+         return null;
+
+      return builder.append(")").toString();
+   }
+
+   private static void addProviders(Bundle bundle, ServiceReference[] srefs, Set<Bundle> providers)
+   {
+      for (int i = 0; srefs != null && i < srefs.length; i++)
+      {
+         Bundle provider = srefs[i].getBundle();
+         if (provider != null && provider != bundle)
+            providers.add(provider);
+      }
+   }
+}
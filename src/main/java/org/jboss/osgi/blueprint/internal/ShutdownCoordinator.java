@@ -0,0 +1,399 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.osgi.blueprint.internal.ContainerRegistry.ContainerEntry;
+import org.osgi.framework.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Destroys the Blueprint containers when the extender stops.
+ * 
+ * A container is destroyed before the containers that provide the services it references, see 
+ * {@link ReferenceProviders}. Containers that do not reference each other's services are destroyed 
+ * in parallel, layer by layer. All steps of the shutdown share one deadline. Past the deadline the 
+ * caller no longer waits, the remaining layers are destroyed in the background, still layer by layer. 
+ * Containers that take longer than their budget, or that are not destroyed by the deadline, are reported.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class ShutdownCoordinator
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(ShutdownCoordinator.class);
+
+   private final long deadline;
+   private final long containerBudget;
+   private final List<String> overruns = new ArrayList<String>();
+
+   /**
+    * Create the coordinator, the deadline starts now
+    * @param timeout the total time in milliseconds for the shutdown
+    * @param containerBudget the time in milliseconds a single container may take to be destroyed
+    */
+   ShutdownCoordinator(long timeout, long containerBudget)
+   {
+      this.deadline = System.currentTimeMillis() + timeout;
+      this.containerBudget = containerBudget;
+   }
+
+   /**
+    * The time in milliseconds until the deadline, which is zero once it has passed
+    */
+   long getRemaining()
+   {
+      return Math.max(0, deadline - System.currentTimeMillis());
+   }
+
+   /**
+    * The containers that were not destroyed within their budget or the deadline
+    */
+   List<String> getOverruns()
+   {
+      return overruns;
+   }
+
+   /**
+    * Destroy the given containers in reverse dependency order
+    * @return true if all containers were destroyed before the deadline
+    */
+   boolean destroyContainers(Collection<ContainerEntry> entries)
+   {
+      if (entries.isEmpty())
+         return true;
+
+      long start = System.currentTimeMillis();
+      Map<Bundle, ContainerEntry> entryMap = new HashMap<Bundle, ContainerEntry>();
+      for (ContainerEntry entry : entries)
+         entryMap.put(entry.bundle, entry);
+
+      Map<Bundle, Set<Bundle>> providers = new HashMap<Bundle, Set<Bundle>>();
+      for (ContainerEntry entry : entries)
+         providers.put(entry.bundle, ReferenceProviders.getProviders(entry.bundle, entry.container));
+
+      List<List<Destruction>> layers = new ArrayList<List<Destruction>>();
+      List<Destruction> destructions = new ArrayList<Destruction>();
+      for (List<Bundle> layer : getLayers(providers))
+      {
+         List<Destruction> current = new ArrayList<Destruction>();
+         for (Bundle bundle : layer)
+            current.add(new Destruction(entryMap.get(bundle)));
+
+         layers.add(current);
+         destructions.addAll(current);
+      }
+      log.debug("Destroy " + entries.size() + " blueprint containers in " + layers.size() + " layers");
+
+      int threads = Math.min(entries.size(), Runtime.getRuntime().availableProcessors() * 2);
+      final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+      {
+         private final AtomicInteger count = new AtomicInteger();
+
+         public Thread newThread(Runnable runnable)
+         {
+            Thread thread = new Thread(runnable, "jbosgi-blueprint-shutdown-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+
+      boolean completed = true;
+      for (int i = 0; i < layers.size(); i++)
+      {
+         List<Destruction> layer = layers.get(i);
+         for (Destruction destruction : layer)
+            executor.execute(destruction);
+
+         if (awaitLayer(layer, deadline) == false)
+         {
+            log.warn("Blueprint container shutdown exceeded its deadline");
+            completed = false;
+            destroyLater(executor, layer, layers.subList(i + 1, layers.size()));
+            break;
+         }
+      }
+      if (completed)
+         executor.shutdown();
+
+      for (Destruction destruction : destructions)
+      {
+         long duration = destruction.getDuration();
+         if (duration < 0)
+            overruns.add(destruction.entry.bundle + " (not destroyed)");
+         else if (duration > containerBudget)
+            overruns.add(destruction.entry.bundle + " (" + duration + "ms)");
+      }
+      if (overruns.isEmpty() == false)
+         log.warn("Blueprint containers over their shutdown budget of " + containerBudget + "ms: " + overruns);
+
+      log.debug("Destroyed blueprint containers in " + (System.currentTimeMillis() - start) + "ms");
+      return completed;
+   }
+
+   /**
+    * Destroy the remaining layers in the background. A layer is only destroyed once the 
+    * previous one is, so that a provider is never destroyed before its consumers.
+    */
+   private void destroyLater(final ExecutorService executor, final List<Destruction> overdue, List<List<Destruction>> remaining)
+   {
+      final List<List<Destruction>> layers = new ArrayList<List<Destruction>>(remaining);
+      Thread thread = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            try
+            {
+               if (awaitLayer(overdue, Long.MAX_VALUE) == false)
+                  return;
+
+               for (List<Destruction> layer : layers)
+               {
+                  for (Destruction destruction : layer)
+                     executor.execute(destruction);
+
+                  if (awaitLayer(layer, Long.MAX_VALUE) == false)
+                     return;
+               }
+            }
+            finally
+            {
+               executor.shutdown();
+            }
+         }
+      }, "jbosgi-blueprint-shutdown-late");
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   /**
+    * Wait for the destruction of the given layer
+    * @param until the time in milliseconds until which to wait
+    */
+   private static boolean awaitLayer(List<Destruction> layer, long until)
+   {
+      try
+      {
+         for (Destruction destruction : layer)
+         {
+            if (destruction.await(until) == false)
+               return false;
+         }
+         return true;
+      }
+      catch (InterruptedException ex)
+      {
+         Thread.currentThread().interrupt();
+         return false;
+      }
+   }
+
+   /**
+    * Order the container bundles in layers. The first layer holds the bundles whose services are 
+    * not referenced by any other container, the next layer the bundles only referenced by the first, etc.
+    * Containers that reference each other's services, directly or through other containers, are in the same layer.
+    * @param providers the container bundles with the bundles that provide the services they reference
+    */
+   static List<List<Bundle>> getLayers(Map<Bundle, Set<Bundle>> providers)
+   {
+      Map<Bundle, Integer> components = getComponents(providers);
+      Set<Bundle> remaining = new LinkedHashSet<Bundle>(providers.keySet());
+      List<List<Bundle>> layers = new ArrayList<List<Bundle>>();
+      while (remaining.isEmpty() == false)
+      {
+         Set<Integer> inUse = new HashSet<Integer>();
+         for (Bundle consumer : remaining)
+         {
+            Integer component = components.get(consumer);
+            for (Bundle provider : providers.get(consumer))
+            {
+               Integer providerComponent = components.get(provider);
+               if (providerComponent != null && providerComponent.equals(component) == false && remaining.contains(provider))
+                  inUse.add(providerComponent);
+            }
+         }
+
+         // There is always a component that is not in use, since the components do not reference each other in a cycle
+         List<Bundle> layer = new ArrayList<Bundle>();
+         for (Bundle bundle : remaining)
+         {
+            if (inUse.contains(components.get(bundle)) == false)
+               layer.add(bundle);
+         }
+
+         remaining.removeAll(layer);
+         layers.add(layer);
+      }
+      return layers;
+   }
+
+   /**
+    * Get the strongly connected component of every container bundle, i.e. the containers that
+    * reference each other's services share a component. Tarjan's algorithm, without recursion.
+    */
+   private static Map<Bundle, Integer> getComponents(Map<Bundle, Set<Bundle>> providers)
+   {
+      Map<Bundle, Integer> index = new HashMap<Bundle, Integer>();
+      Map<Bundle, Integer> lowlink = new HashMap<Bundle, Integer>();
+      Map<Bundle, Integer> components = new HashMap<Bundle, Integer>();
+      LinkedList<Bundle> stack = new LinkedList<Bundle>();
+      Set<Bundle> onStack = new HashSet<Bundle>();
+      LinkedList<Bundle> path = new LinkedList<Bundle>();
+      LinkedList<Iterator<Bundle>> iterators = new LinkedList<Iterator<Bundle>>();
+      int count = 0;
+
+      for (Bundle root : providers.keySet())
+      {
+         if (index.containsKey(root))
+            continue;
+
+         Bundle next = root;
+         while (next != null || path.isEmpty() == false)
+         {
+            if (next != null)
+            {
+               index.put(next, index.size());
+               lowlink.put(next, index.get(next));
+               stack.push(next);
+               onStack.add(next);
+               path.push(next);
+               iterators.push(providers.get(next).iterator());
+               next = null;
+               continue;
+            }
+
+            Bundle node = path.peek();
+            Iterator<Bundle> it = iterators.peek();
+            if (it.hasNext())
+            {
+               Bundle provider = it.next();
+               if (providers.containsKey(provider) == false)
+                  continue;
+
+               if (index.containsKey(provider) == false)
+                  next = provider;
+               else if (onStack.contains(provider))
+                  lowlink.put(node, Math.min(lowlink.get(node), index.get(provider)));
+               continue;
+            }
+
+            path.pop();
+            iterators.pop();
+            if (path.isEmpty() == false)
+            {
+               Bundle parent = path.peek();
+               lowlink.put(parent, Math.min(lowlink.get(parent), lowlink.get(node)));
+            }
+
+            if (lowlink.get(node).equals(index.get(node)))
+            {
+               Integer component = Integer.valueOf(count++);
+               Bundle member;
+               do
+               {
+                  member = stack.pop();
+                  onStack.remove(member);
+                  components.put(member, component);
+               }
+               while (member != node);
+            }
+         }
+      }
+      return components;
+   }
+
+   private static class Destruction implements Runnable
+   {
+      final ContainerEntry entry;
+      private long started;
+      private long finished;
+
+      Destruction(ContainerEntry entry)
+      {
+         this.entry = entry;
+      }
+
+      public void run()
+      {
+         synchronized (this)
+         {
+            started = System.currentTimeMillis();
+         }
+         try
+         {
+            log.debug("Destroy blueprint container: " + entry.bundle);
+            entry.container.destroy();
+         }
+         catch (RuntimeException ex)
+         {
+            log.warn("Cannot destroy blueprint container: " + entry.bundle, ex);
+         }
+         finally
+         {
+            synchronized (this)
+            {
+               finished = System.currentTimeMillis();
+               notifyAll();
+            }
+         }
+      }
+
+      synchronized boolean await(long until) throws InterruptedException
+      {
+         while (finished == 0)
+         {
+            long wait = until - System.currentTimeMillis();
+            if (wait <= 0)
+               return false;
+
+            wait(wait);
+         }
+         return true;
+      }
+
+      /**
+       * The time the destruction took, or -1 if it did not finish
+       */
+      synchronized long getDuration()
+      {
+         return finished != 0 ? finished - started : -1;
+      }
+   }
+}
@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs every task on its own named virtual thread.
+ * 
+ * Virtual threads are obtained reflectively, so that the extender still runs on JDKs without them. 
+ * The executor counts the active and completed tasks, which a thread-per-task executor does not expose.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+class VirtualThreadExecutor extends AbstractExecutorService
+{
+   // Provide logging
+   private static final Logger log = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+
+   private final ExecutorService delegate;
+   private final AtomicInteger active = new AtomicInteger();
+   private final AtomicInteger largest = new AtomicInteger();
+   private final AtomicLong completed = new AtomicLong();
+
+   private VirtualThreadExecutor(ExecutorService delegate)
+   {
+      this.delegate = delegate;
+   }
+
+   /**
+    * Create an executor whose threads are named with the given prefix and a sequence number
+    * @return null if the JDK does not support virtual threads
+    */
+   static VirtualThreadExecutor create(String prefix)
+   {
+      try
+      {
+         // Thread.ofVirtual().name(prefix, 1).factory()
+         Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+         Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+         builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+         ThreadFactory factory = (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+
+         // Executors.newThreadPerTaskExecutor(factory)
+         Method method = java.util.concurrent.Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+         ExecutorService delegate = (ExecutorService)method.invoke(null, factory);
+         return new VirtualThreadExecutor(delegate);
+      }
+      catch (Exception ex)
+      {
+         log.debug("Virtual threads not available: " + ex);
+         return null;
+      }
+   }
+
+   public void execute(final Runnable command)
+   {
+      delegate.execute(new Runnable()
+      {
+         public void run()
+         {
+            int current = active.incrementAndGet();
+            int max = largest.get();
+            while (current > max && largest.compareAndSet(max, current) == false)
+               max = largest.get();
+            try
+            {
+               command.run();
+            }
+            finally
+            {
+               active.decrementAndGet();
+               completed.incrementAndGet();
+            }
+         }
+      });
+   }
+
+   int getActiveCount()
+   {
+      return active.get();
+   }
+
+   int getLargestPoolSize()
+   {
+      return largest.get();
+   }
+
+   long getCompletedTaskCount()
+   {
+      return completed.get();
+   }
+
+   public void shutdown()
+   {
+      delegate.shutdown();
+   }
+
+   public List<Runnable> shutdownNow()
+   {
+      return delegate.shutdownNow();
+   }
+
+   public boolean isShutdown()
+   {
+      return delegate.isShutdown();
+   }
+
+   public boolean isTerminated()
+   {
+      return delegate.isTerminated();
+   }
+
+   public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+   {
+      return delegate.awaitTermination(timeout, unit);
+   }
+}
@@ -0,0 +1,219 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Filter;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+
+/**
+ * Test the event fast path of the {@link BlueprintEventDispatcher} when there are no listeners and no EventAdmin.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class BlueprintEventDispatcherTestCase
+{
+   private static final int EVENT_COUNT = 1000;
+   private static final int MEASURED_EVENT_COUNT = 20000;
+
+   private ScheduledThreadPoolExecutor timer;
+   private ThreadPoolExecutor delivery;
+   private BlueprintEventDispatcher dispatcher;
+   private Bundle bundle;
+   private Bundle extender;
+
+   @Before
+   public void setUp()
+   {
+      timer = new ScheduledThreadPoolExecutor(1);
+      delivery = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+      bundle = FrameworkProxies.newBundle(1L);
+      extender = FrameworkProxies.newBundle(0L);
+
+      Map<String, Object> answers = new HashMap<String, Object>();
+      answers.put("createFilter", FrameworkProxies.newProxy(Filter.class, "Filter", new HashMap<String, Object>()));
+      BundleContext context = FrameworkProxies.newProxy(BundleContext.class, "BundleContext[0]", answers);
+      dispatcher = new BlueprintEventDispatcher(context, timer, delivery, 1000, 60000L, 0L, false);
+   }
+
+   @After
+   public void tearDown()
+   {
+      dispatcher.destroy();
+      timer.shutdownNow();
+      delivery.shutdownNow();
+   }
+
+   @Test
+   public void testStateIsRecorded()
+   {
+      BlueprintEvent creating = new BlueprintEvent(BlueprintEvent.CREATING, bundle, extender);
+      dispatcher.blueprintEvent(creating);
+      assertSame(creating, dispatcher.getState(bundle));
+
+      BlueprintEvent created = new BlueprintEvent(BlueprintEvent.CREATED, bundle, extender);
+      dispatcher.blueprintEvent(created);
+      assertSame(created, dispatcher.getState(bundle));
+   }
+
+   @Test
+   public void testNoTaskWithoutListeners()
+   {
+      long deliveryTasks = delivery.getTaskCount();
+      // Only the watchdog is scheduled on the timer
+      int timerTasks = timer.getQueue().size();
+
+      dispatchEvents();
+
+      assertEquals("Delivery tasks", deliveryTasks, delivery.getTaskCount());
+      assertEquals("Timer tasks", timerTasks, timer.getQueue().size());
+      assertEquals(BlueprintEvent.CREATED, dispatcher.getState(bundle).getType());
+   }
+
+   @Test
+   public void testNoLockWithoutListeners() throws Exception
+   {
+      // Hold the lock that guards the listener services while the events are dispatched
+      Field field = BlueprintEventDispatcher.class.getDeclaredField("listeners");
+      field.setAccessible(true);
+      final Object lock = field.get(dispatcher);
+      final CountDownLatch locked = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      Thread holder = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            synchronized (lock)
+            {
+               locked.countDown();
+               try
+               {
+                  release.await();
+               }
+               catch (InterruptedException ex)
+               {
+                  // done
+               }
+            }
+         }
+      });
+      holder.start();
+      locked.await();
+
+      ExecutorService emitter = Executors.newSingleThreadExecutor();
+      try
+      {
+         Future<Integer> result = emitter.submit(new Callable<Integer>()
+         {
+            public Integer call()
+            {
+               dispatchEvents();
+               return dispatcher.getState(bundle).getType();
+            }
+         });
+         assertEquals(Integer.valueOf(BlueprintEvent.CREATED), result.get(10, TimeUnit.SECONDS));
+      }
+      finally
+      {
+         release.countDown();
+         holder.join();
+         emitter.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testNoAllocationWithoutListeners()
+   {
+      com.sun.management.ThreadMXBean threadBean = getThreadBean();
+      Assume.assumeTrue(threadBean != null);
+
+      BlueprintEvent[] events = new BlueprintEvent[] { new BlueprintEvent(BlueprintEvent.CREATING, bundle, extender),
+            new BlueprintEvent(BlueprintEvent.CREATED, bundle, extender) };
+
+      // Record the state of the bundle and warm up the fast path
+      for (int i = 0; i < MEASURED_EVENT_COUNT; i++)
+         dispatcher.blueprintEvent(events[i & 1]);
+
+      long threadId = Thread.currentThread().getId();
+      long before = threadBean.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < MEASURED_EVENT_COUNT; i++)
+         dispatcher.blueprintEvent(events[i & 1]);
+      long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+      // Allow for the allocations of the measurement itself, which are far below one byte per event
+      assertTrue("Allocated " + allocated + " bytes for " + MEASURED_EVENT_COUNT + " events", allocated < MEASURED_EVENT_COUNT / 10);
+      assertEquals(BlueprintEvent.CREATED, dispatcher.getState(bundle).getType());
+   }
+
+   private void dispatchEvents()
+   {
+      BlueprintEvent[] events = new BlueprintEvent[] { new BlueprintEvent(BlueprintEvent.CREATING, bundle, extender),
+            new BlueprintEvent(BlueprintEvent.CREATED, bundle, extender) };
+
+      for (int i = 0; i < EVENT_COUNT; i++)
+         dispatcher.blueprintEvent(events[i & 1]);
+   }
+
+   /**
+    * Get the bean that measures the allocated bytes of a thread
+    * @return null if the JVM does not support the measurement
+    */
+   private static com.sun.management.ThreadMXBean getThreadBean()
+   {
+      java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+      if (threadBean instanceof com.sun.management.ThreadMXBean == false)
+         return null;
+
+      com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)threadBean;
+      if (sunBean.isThreadAllocatedMemorySupported() == false)
+         return null;
+
+      sunBean.setThreadAllocatedMemoryEnabled(true);
+      return sunBean;
+   }
+}
@@ -0,0 +1,267 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.osgi.blueprint.BlueprintProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+
+/**
+ * Test the hold-back and the ordering of containers by the {@link BootstrapScheduler}.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class BootstrapSchedulerTestCase
+{
+   private final Bundle extender = FrameworkProxies.newBundle(0L);
+   private final List<Bundle> created = Collections.synchronizedList(new ArrayList<Bundle>());
+   private final List<File> descriptors = new ArrayList<File>();
+   private ExecutorService executor;
+   private BootstrapScheduler scheduler;
+
+   @Before
+   public void setUp()
+   {
+      // A single bootstrap thread runs the scans and creations in the order they are scheduled
+      executor = Executors.newFixedThreadPool(1);
+      BootstrapScheduler.ContainerFactory factory = new BootstrapScheduler.ContainerFactory()
+      {
+         public void createContainer(Bundle bundle, List<Object> pathList)
+         {
+            created.add(bundle);
+         }
+      };
+      scheduler = new BootstrapScheduler(executor, new DescriptorCache(null), factory);
+   }
+
+   @After
+   public void tearDown()
+   {
+      executor.shutdownNow();
+      for (File file : descriptors)
+         file.delete();
+   }
+
+   @Test
+   public void testConsumerIsHeldBack() throws Exception
+   {
+      Bundle provider = FrameworkProxies.newBundle(1L);
+      Bundle consumer = FrameworkProxies.newBundle(2L);
+      scheduler.schedule(provider, descriptor("<service ref='a' interface='org.acme.ServiceA'/>"));
+      scheduler.schedule(consumer, descriptor("<reference id='a' interface='org.acme.ServiceA'/>"));
+
+      awaitIdle();
+      assertEquals(Arrays.asList(provider), created);
+
+      scheduler.blueprintEvent(new BlueprintEvent(BlueprintEvent.CREATED, provider, extender));
+      awaitIdle();
+      assertEquals(Arrays.asList(provider, consumer), created);
+   }
+
+   @Test
+   public void testConsumerIsReleasedOnGracePeriodAndFailure() throws Exception
+   {
+      Bundle providerA = FrameworkProxies.newBundle(1L);
+      Bundle providerB = FrameworkProxies.newBundle(2L);
+      Bundle consumer = FrameworkProxies.newBundle(3L);
+      scheduler.schedule(providerA, descriptor("<service ref='a' interface='org.acme.ServiceA'/>"));
+      scheduler.schedule(providerB, descriptor("<service ref='b' interface='org.acme.ServiceB'/>"));
+      scheduler.schedule(consumer, descriptor("<reference id='a' interface='org.acme.ServiceA'/><reference id='b' interface='org.acme.ServiceB'/>"));
+
+      awaitIdle();
+      assertEquals(Arrays.asList(providerA, providerB), created);
+
+      scheduler.blueprintEvent(new BlueprintEvent(BlueprintEvent.GRACE_PERIOD, providerA, extender, new String[] { "(objectClass=org.acme.ServiceX)" }));
+      awaitIdle();
+      assertFalse("Still waiting on B", created.contains(consumer));
+
+      scheduler.blueprintEvent(new BlueprintEvent(BlueprintEvent.FAILURE, providerB, extender, new IllegalStateException()));
+      awaitIdle();
+      assertEquals(Arrays.asList(providerA, providerB, consumer), created);
+   }
+
+   @Test
+   public void testOnlyEarlierBundlesHoldBack() throws Exception
+   {
+      Bundle consumer = FrameworkProxies.newBundle(1L);
+      Bundle provider = FrameworkProxies.newBundle(2L);
+      scheduler.schedule(consumer, descriptor("<reference id='a' interface='org.acme.ServiceA'/>"));
+      scheduler.schedule(provider, descriptor("<service ref='a' interface='org.acme.ServiceA'/>"));
+
+      awaitIdle();
+      assertEquals(Arrays.asList(consumer, provider), created);
+   }
+
+   @Test
+   public void testOptionalReferenceDoesNotHoldBack() throws Exception
+   {
+      Bundle provider = FrameworkProxies.newBundle(1L);
+      Bundle consumer = FrameworkProxies.newBundle(2L);
+      scheduler.schedule(provider, descriptor("<service ref='a' interface='org.acme.ServiceA'/>"));
+      scheduler.schedule(consumer, descriptor("<reference id='a' interface='org.acme.ServiceA' availability='optional'/>"));
+
+      awaitIdle();
+      assertEquals(Arrays.asList(provider, consumer), created);
+   }
+
+   @Test
+   public void testCancelHeldBackContainer() throws Exception
+   {
+      Bundle provider = FrameworkProxies.newBundle(1L);
+      Bundle consumer = FrameworkProxies.newBundle(2L);
+      scheduler.schedule(provider, descriptor("<service ref='a' interface='org.acme.ServiceA'/>"));
+      scheduler.schedule(consumer, descriptor("<reference id='a' interface='org.acme.ServiceA'/>"));
+      awaitIdle();
+
+      assertTrue("Not yet created", scheduler.cancel(consumer));
+      assertFalse("Already created", scheduler.cancel(provider));
+
+      awaitIdle();
+      assertEquals(Arrays.asList(provider), created);
+   }
+
+   @Test
+   public void testTimingIsDroppedOnUninstall() throws Exception
+   {
+      Bundle provider = FrameworkProxies.newBundle(1L);
+      scheduler.schedule(provider, descriptor("<service ref='a' interface='org.acme.ServiceA'/>"));
+      awaitIdle();
+
+      scheduler.blueprintEvent(new BlueprintEvent(BlueprintEvent.CREATED, provider, extender));
+      assertNotNull("Timing of the created container", scheduler.getTiming(1L));
+
+      scheduler.bundleChanged(new BundleEvent(BundleEvent.STOPPED, provider));
+      assertNotNull("Timing is kept while the bundle is installed", scheduler.getTiming(1L));
+
+      scheduler.bundleChanged(new BundleEvent(BundleEvent.UNINSTALLED, provider));
+      assertNull(scheduler.getTiming(1L));
+      assertTrue(scheduler.getTimings().isEmpty());
+   }
+
+   @Test
+   public void testHigherPriorityGoesFirst() throws Exception
+   {
+      Bundle provider = FrameworkProxies.newBundle(1L);
+      Bundle low = newBundle(2L, "-1");
+      Bundle plain = newBundle(3L, "invalid");
+      Bundle high = newBundle(4L, " 10 ");
+      scheduler.schedule(provider, descriptor("<service ref='a' interface='org.acme.ServiceA'/>"));
+      scheduler.schedule(low, descriptor("<reference id='a' interface='org.acme.ServiceA'/>"));
+      scheduler.schedule(plain, descriptor("<reference id='a' interface='org.acme.ServiceA'/>"));
+      scheduler.schedule(high, descriptor("<reference id='a' interface='org.acme.ServiceA'/>"));
+      awaitIdle();
+
+      // The held back containers become ready together
+      scheduler.blueprintEvent(new BlueprintEvent(BlueprintEvent.CREATED, provider, extender));
+      awaitIdle();
+      assertEquals(Arrays.asList(provider, high, plain, low), created);
+   }
+
+   @Test
+   public void testMoreDependentsGoFirst() throws Exception
+   {
+      Bundle provider = FrameworkProxies.newBundle(1L);
+      Bundle leaf = FrameworkProxies.newBundle(2L);
+      Bundle shared = FrameworkProxies.newBundle(3L);
+      Bundle consumer = FrameworkProxies.newBundle(4L);
+      scheduler.schedule(provider, descriptor("<service ref='a' interface='org.acme.ServiceA'/>"));
+      scheduler.schedule(leaf, descriptor("<reference id='a' interface='org.acme.ServiceA'/>"));
+      scheduler.schedule(shared, descriptor("<reference id='a' interface='org.acme.ServiceA'/><service ref='a' interface='org.acme.ServiceB'/>"));
+      scheduler.schedule(consumer, descriptor("<reference id='b' interface='org.acme.ServiceB'/>"));
+      awaitIdle();
+      assertEquals(Arrays.asList(provider), created);
+
+      // The shared container is referenced by the consumer, so it goes before the leaf that was scheduled earlier
+      scheduler.blueprintEvent(new BlueprintEvent(BlueprintEvent.CREATED, provider, extender));
+      awaitIdle();
+      assertEquals(Arrays.asList(provider, shared, leaf), created);
+
+      scheduler.blueprintEvent(new BlueprintEvent(BlueprintEvent.CREATED, shared, extender));
+      awaitIdle();
+      assertEquals(Arrays.asList(provider, shared, leaf, consumer), created);
+   }
+
+   /**
+    * Wait until the bootstrap thread has run every task that was submitted so far
+    */
+   private void awaitIdle() throws Exception
+   {
+      executor.submit(new Runnable()
+      {
+         public void run()
+         {
+         }
+      }).get(10, TimeUnit.SECONDS);
+   }
+
+   /**
+    * Create a bundle with the given priority header
+    */
+   private static Bundle newBundle(long id, String priority)
+   {
+      Hashtable<String, String> headers = new Hashtable<String, String>();
+      headers.put(BlueprintProperties.PRIORITY_HEADER, priority);
+      Map<String, Object> answers = new HashMap<String, Object>();
+      answers.put("getHeaders", headers);
+      return FrameworkProxies.newBundle(id, answers);
+   }
+
+   /**
+    * Write a descriptor with the given components and get its path list
+    */
+   private List<Object> descriptor(String components) throws IOException
+   {
+      File file = File.createTempFile("context", ".xml");
+      descriptors.add(file);
+      FileWriter writer = new FileWriter(file);
+      writer.write("<blueprint xmlns='http://www.osgi.org/xmlns/blueprint/v1.0.0'>" + components + "</blueprint>");
+      writer.close();
+      return Collections.<Object> singletonList(file.toURI().toURL());
+   }
+}
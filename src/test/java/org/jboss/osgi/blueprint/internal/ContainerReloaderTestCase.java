@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+/**
+ * Test the component diff of the {@link ContainerReloader}.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ContainerReloaderTestCase
+{
+   private static final String BLUEPRINT = "<blueprint xmlns='http://www.osgi.org/xmlns/blueprint/v1.0.0'";
+
+   private final Bundle bundle = FrameworkProxies.newBundle(1L);
+   private ContainerReloader reloader;
+   private File descriptor;
+
+   @Before
+   public void setUp() throws IOException
+   {
+      reloader = new ContainerReloader();
+      descriptor = File.createTempFile("context", ".xml");
+      write(BLUEPRINT + ">"
+            + "<bean id='beanA' class='org.acme.BeanA'><property name='foo' value='bar'/></bean>"
+            + "<bean id='beanB' class='org.acme.BeanB'/>"
+            + "<service ref='beanA' interface='org.acme.ServiceA'/>"
+            + "</blueprint>");
+      reloader.record(bundle, getPathList());
+   }
+
+   @After
+   public void tearDown()
+   {
+      descriptor.delete();
+   }
+
+   @Test
+   public void testFormattingIsNoChange() throws IOException
+   {
+      write(BLUEPRINT + ">\n"
+            + "  <bean class='org.acme.BeanA' id='beanA'>\n    <property value='bar' name='foo'/>\n  </bean>\n"
+            + "  <bean id='beanB' class='org.acme.BeanB'></bean>\n"
+            + "  <service interface='org.acme.ServiceA' ref='beanA'/>\n"
+            + "</blueprint>\n");
+      assertTrue(reloader.diff(bundle, getPathList()).isEmpty());
+   }
+
+   @Test
+   public void testChangedComponent() throws IOException
+   {
+      write(BLUEPRINT + ">"
+            + "<bean id='beanA' class='org.acme.BeanA'><property name='foo' value='baz'/></bean>"
+            + "<bean id='beanB' class='org.acme.BeanB'/>"
+            + "<service ref='beanA' interface='org.acme.ServiceA'/>"
+            + "</blueprint>");
+      assertEquals(Arrays.asList("beanA"), reloader.diff(bundle, getPathList()));
+
+      // The new digests are recorded
+      assertTrue(reloader.diff(bundle, getPathList()).isEmpty());
+   }
+
+   @Test
+   public void testAddedAndRemovedComponents() throws IOException
+   {
+      write(BLUEPRINT + ">"
+            + "<bean id='beanA' class='org.acme.BeanA'><property name='foo' value='bar'/></bean>"
+            + "<bean id='beanC' class='org.acme.BeanC'/>"
+            + "<service ref='beanA' interface='org.acme.ServiceA'/>"
+            + "</blueprint>");
+      assertEquals(Arrays.asList("beanB", "beanC"), reloader.diff(bundle, getPathList()));
+   }
+
+   @Test
+   public void testAnonymousComponent() throws IOException
+   {
+      write(BLUEPRINT + ">"
+            + "<bean id='beanA' class='org.acme.BeanA'><property name='foo' value='bar'/></bean>"
+            + "<bean id='beanB' class='org.acme.BeanB'/>"
+            + "<service ref='beanB' interface='org.acme.ServiceA'/>"
+            + "</blueprint>");
+      assertEquals(Arrays.asList("#service[0]"), reloader.diff(bundle, getPathList()));
+   }
+
+   @Test
+   public void testRootAttributes() throws IOException
+   {
+      write(BLUEPRINT + " default-availability='optional'>"
+            + "<bean id='beanA' class='org.acme.BeanA'><property name='foo' value='bar'/></bean>"
+            + "<bean id='beanB' class='org.acme.BeanB'/>"
+            + "<service ref='beanA' interface='org.acme.ServiceA'/>"
+            + "</blueprint>");
+      assertEquals(Arrays.asList(ContainerReloader.ROOT_COMPONENT), reloader.diff(bundle, getPathList()));
+   }
+
+   @Test
+   public void testRemovedContainer() throws IOException
+   {
+      reloader.remove(bundle);
+      assertEquals(Arrays.asList("#blueprint", "#service[0]", "beanA", "beanB"), reloader.diff(bundle, getPathList()));
+   }
+
+   private List<Object> getPathList() throws IOException
+   {
+      return Collections.<Object> singletonList(descriptor.toURI().toURL());
+   }
+
+   private void write(String content) throws IOException
+   {
+      FileWriter writer = new FileWriter(descriptor);
+      writer.write(content);
+      writer.close();
+   }
+}
@@ -0,0 +1,271 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.osgi.blueprint.internal.DescriptorInfo.ServiceInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+/**
+ * Test the binary form of the {@link DescriptorInfo} and the validation of {@link DescriptorCache} entries.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class DescriptorCacheTestCase
+{
+   private File tmpDir;
+   private File cacheDir;
+   private File descriptor;
+   private long lastModified = 1000L;
+   private Bundle bundle;
+
+   @Before
+   public void setUp() throws IOException
+   {
+      tmpDir = File.createTempFile("descriptor-cache", "");
+      tmpDir.delete();
+      tmpDir.mkdirs();
+      cacheDir = new File(tmpDir, "cache");
+
+      descriptor = new File(tmpDir, "context.xml");
+      FileWriter writer = new FileWriter(descriptor);
+      writer.write("<blueprint xmlns='http://www.osgi.org/xmlns/blueprint/v1.0.0'>"
+            + "<bean id='beanA' class='org.acme.BeanA'/>"
+            + "<service ref='beanA' interface='org.acme.ServiceA' ranking='5'/>"
+            + "<reference id='serviceB' interface='org.acme.ServiceB'/>"
+            + "<reference id='serviceC' interface='org.acme.ServiceC' availability='optional'/>"
+            + "</blueprint>");
+      writer.close();
+
+      Map<String, Object> answers = new HashMap<String, Object>();
+      answers.put("getLastModified", new FrameworkProxies.Answer()
+      {
+         public Object answer(Object[] args)
+         {
+            return Long.valueOf(lastModified);
+         }
+      });
+      bundle = FrameworkProxies.newBundle(1L, answers);
+   }
+
+   @After
+   public void tearDown()
+   {
+      delete(tmpDir);
+   }
+
+   @Test
+   public void testBinaryRoundTrip() throws IOException
+   {
+      Map<String, String> props = new LinkedHashMap<String, String>();
+      props.put("foo", "bar");
+      props.put("baz", "");
+      List<ServiceInfo> services = new ArrayList<ServiceInfo>();
+      services.add(new ServiceInfo(Arrays.asList("org.acme.ServiceA", "org.acme.ServiceX"), 10, props));
+      services.add(new ServiceInfo(Collections.<String> emptyList(), 0, new HashMap<String, String>()));
+      DescriptorInfo info = new DescriptorInfo(services, setOf("org.acme.ServiceB"), setOf("org.acme.ServiceC"), setOf("org.acme.BeanB", "org.acme.BeanA"));
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      info.writeTo(out);
+      out.close();
+      DescriptorInfo result = DescriptorInfo.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+      assertEquals(2, result.getServices().size());
+      ServiceInfo service = result.getServices().get(0);
+      assertEquals(Arrays.asList("org.acme.ServiceA", "org.acme.ServiceX"), service.getInterfaces());
+      assertEquals(10, service.getRanking());
+      assertEquals(props, service.getProperties());
+      assertTrue(result.getServices().get(1).getInterfaces().isEmpty());
+      assertEquals(info.getExportedInterfaces(), result.getExportedInterfaces());
+      assertEquals(setOf("org.acme.ServiceB"), result.getMandatoryReferences());
+      assertEquals(setOf("org.acme.ServiceC"), result.getOptionalReferences());
+      assertEquals("Bean order is kept", Arrays.asList("org.acme.BeanB", "org.acme.BeanA"), new ArrayList<String>(result.getBeanClasses()));
+   }
+
+   @Test
+   public void testWarmStartIsCacheHit() throws IOException
+   {
+      DescriptorCache cache = new DescriptorCache(cacheDir);
+      DescriptorInfo info = cache.getDescriptorInfo(bundle, getPathList());
+      assertEquals(setOf("org.acme.ServiceA"), info.getExportedInterfaces());
+      assertEquals(setOf("org.acme.ServiceB"), info.getMandatoryReferences());
+      assertEquals(setOf("org.acme.ServiceC"), info.getOptionalReferences());
+      assertEquals(1, cache.getMisses());
+
+      // A new cache over the same directory serves the entry
+      cache = new DescriptorCache(cacheDir);
+      info = cache.getDescriptorInfo(bundle, getPathList());
+      assertEquals(setOf("org.acme.ServiceA"), info.getExportedInterfaces());
+      assertEquals(5, info.getServices().get(0).getRanking());
+      assertEquals(1, cache.getHits());
+      assertEquals(0, cache.getMisses());
+      assertEquals(0, cache.getCompiled());
+   }
+
+   @Test
+   public void testDescriptorEditedInPlaceIsScanned() throws IOException
+   {
+      DescriptorCache cache = new DescriptorCache(cacheDir);
+      cache.getDescriptorInfo(bundle, getPathList());
+
+      // The bundle's last modified time stays the same
+      FileWriter writer = new FileWriter(descriptor);
+      writer.write("<blueprint xmlns='http://www.osgi.org/xmlns/blueprint/v1.0.0'>"
+            + "<bean id='beanA' class='org.acme.BeanA'/>"
+            + "<service ref='beanA' interface='org.acme.ServiceX'/>"
+            + "</blueprint>");
+      writer.close();
+
+      DescriptorInfo info = cache.getDescriptorInfo(bundle, getPathList());
+      assertEquals(setOf("org.acme.ServiceX"), info.getExportedInterfaces());
+      assertEquals(0, cache.getHits());
+      assertEquals(2, cache.getMisses());
+   }
+
+   @Test
+   public void testUpdatedBundleIsScanned() throws IOException
+   {
+      DescriptorCache cache = new DescriptorCache(cacheDir);
+      cache.getDescriptorInfo(bundle, getPathList());
+
+      lastModified = 2000L;
+      cache.getDescriptorInfo(bundle, getPathList());
+      assertEquals(0, cache.getHits());
+      assertEquals(2, cache.getMisses());
+
+      cache.getDescriptorInfo(bundle, getPathList());
+      assertEquals(1, cache.getHits());
+   }
+
+   @Test
+   public void testOtherDescriptorPathsAreScanned() throws IOException
+   {
+      DescriptorCache cache = new DescriptorCache(cacheDir);
+      cache.getDescriptorInfo(bundle, getPathList());
+
+      File other = new File(tmpDir, "other.xml");
+      FileWriter writer = new FileWriter(other);
+      writer.write("<blueprint xmlns='http://www.osgi.org/xmlns/blueprint/v1.0.0'/>");
+      writer.close();
+      DescriptorInfo info = cache.getDescriptorInfo(bundle, Collections.<Object> singletonList(other.toURI().toURL()));
+      assertTrue(info.getExportedInterfaces().isEmpty());
+      assertEquals(0, cache.getHits());
+      assertEquals(2, cache.getMisses());
+   }
+
+   @Test
+   public void testReloadedBundleIsScanned() throws IOException
+   {
+      DescriptorCache cache = new DescriptorCache(cacheDir);
+      ContainerReloader reloader = new ContainerReloader();
+      cache.getDescriptorInfo(bundle, getPathList());
+      reloader.record(bundle, getPathList());
+
+      // Change the exported interface in place, like a reload does
+      FileWriter writer = new FileWriter(descriptor);
+      writer.write("<blueprint xmlns='http://www.osgi.org/xmlns/blueprint/v1.0.0'>"
+            + "<bean id='beanA' class='org.acme.BeanA'/>"
+            + "<service ref='beanA' interface='org.acme.ServiceY' ranking='5'/>"
+            + "</blueprint>");
+      writer.close();
+      assertEquals(Arrays.asList("#service[0]", "serviceB", "serviceC"), reloader.diff(bundle, getPathList()));
+
+      cache.invalidate(bundle);
+      assertFalse("Entry removed", new File(cacheDir, "1.bin").exists());
+
+      DescriptorInfo info = cache.getDescriptorInfo(bundle, getPathList());
+      assertEquals(setOf("org.acme.ServiceY"), info.getExportedInterfaces());
+      assertTrue(info.getMandatoryReferences().isEmpty());
+      assertEquals(0, cache.getHits());
+      assertEquals(2, cache.getMisses());
+   }
+
+   @Test
+   public void testVersionMismatchIsScanned() throws IOException
+   {
+      DescriptorCache cache = new DescriptorCache(cacheDir);
+      cache.getDescriptorInfo(bundle, getPathList());
+
+      // The version follows the magic number
+      File entry = new File(cacheDir, "1.bin");
+      assertTrue(entry.exists());
+      RandomAccessFile raf = new RandomAccessFile(entry, "rw");
+      raf.seek(4);
+      int version = raf.readInt();
+      raf.seek(4);
+      raf.writeInt(version - 1);
+      raf.close();
+
+      DescriptorInfo info = cache.getDescriptorInfo(bundle, getPathList());
+      assertEquals(setOf("org.acme.ServiceA"), info.getExportedInterfaces());
+      assertEquals(0, cache.getHits());
+      assertEquals(2, cache.getMisses());
+   }
+
+   private List<Object> getPathList() throws IOException
+   {
+      return Collections.<Object> singletonList(descriptor.toURI().toURL());
+   }
+
+   private static LinkedHashSet<String> setOf(String... values)
+   {
+      return new LinkedHashSet<String>(Arrays.asList(values));
+   }
+
+   private static void delete(File file)
+   {
+      File[] children = file.listFiles();
+      if (children != null)
+      {
+         for (File child : children)
+            delete(child);
+      }
+      file.delete();
+   }
+}
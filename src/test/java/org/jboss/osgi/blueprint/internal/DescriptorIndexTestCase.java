@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+
+/**
+ * Test the path resolution of the {@link DescriptorIndex}.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class DescriptorIndexTestCase
+{
+   private final List<String> searches = new ArrayList<String>();
+   private final long[] lastModified = new long[] { 1000L };
+
+   @Test
+   public void testDefaultDirectory()
+   {
+      Bundle bundle = newBundle(null, "a.xml", "b.xml");
+      assertEquals(Arrays.asList("OSGI-INF/blueprint/a.xml", "OSGI-INF/blueprint/b.xml"), DescriptorIndex.resolvePaths(bundle));
+      assertEquals(Arrays.asList("OSGI-INF/blueprint/|*.xml"), searches);
+   }
+
+   @Test
+   public void testExplicitPaths()
+   {
+      Bundle bundle = newBundle("/META-INF/a.xml, cfg/b.xml;x=y,, ", "c.xml");
+      assertEquals(Arrays.asList("META-INF/a.xml", "cfg/b.xml"), DescriptorIndex.resolvePaths(bundle));
+      assertTrue("Explicit paths are not searched", searches.isEmpty());
+   }
+
+   @Test
+   public void testWildcardInLastSegment()
+   {
+      Bundle bundle = newBundle("cfg/*-context.xml,*.xml", "a-context.xml");
+      assertEquals(Arrays.asList("cfg/a-context.xml", "a-context.xml"), DescriptorIndex.resolvePaths(bundle));
+      assertEquals(Arrays.asList("cfg/|*-context.xml", "/|*.xml"), searches);
+   }
+
+   @Test
+   public void testTrailingSlashIsDirectory()
+   {
+      Bundle bundle = newBundle("/cfg/blueprint/", "a.xml");
+      assertEquals(Arrays.asList("cfg/blueprint/a.xml"), DescriptorIndex.resolvePaths(bundle));
+      assertEquals(Arrays.asList("cfg/blueprint/|*.xml"), searches);
+   }
+
+   @Test
+   public void testNoDescriptors()
+   {
+      Bundle bundle = newBundle(null);
+      assertTrue(DescriptorIndex.resolvePaths(bundle).isEmpty());
+   }
+
+   @Test
+   public void testEntryIsReused()
+   {
+      Bundle bundle = newBundle(null, "a.xml");
+      DescriptorIndex index = new DescriptorIndex();
+      index.bundleChanged(new BundleEvent(BundleEvent.RESOLVED, bundle));
+      assertEquals(1, index.size());
+      assertEquals(1, searches.size());
+
+      List<Object> paths = index.getDescriptorPaths(bundle);
+      assertSame(paths, index.getDescriptorPaths(bundle));
+      assertEquals("Resolved once", 1, searches.size());
+
+      // A changed bundle is resolved again
+      lastModified[0] = 2000L;
+      assertEquals(paths, index.getDescriptorPaths(bundle));
+      assertEquals(2, searches.size());
+
+      index.bundleChanged(new BundleEvent(BundleEvent.UNINSTALLED, bundle));
+      assertEquals(0, index.size());
+   }
+
+   /**
+    * Create a bundle with the given Bundle-Blueprint header, whose directories contain the given entries
+    */
+   private Bundle newBundle(String header, final String... names)
+   {
+      Hashtable<String, String> headers = new Hashtable<String, String>();
+      if (header != null)
+         headers.put("Bundle-Blueprint", header);
+
+      Map<String, Object> answers = new HashMap<String, Object>();
+      answers.put("getHeaders", headers);
+      answers.put("getLastModified", new FrameworkProxies.Answer()
+      {
+         public Object answer(Object[] args)
+         {
+            return Long.valueOf(lastModified[0]);
+         }
+      });
+      answers.put("findEntries", new FrameworkProxies.Answer()
+      {
+         public Object answer(Object[] args) throws Exception
+         {
+            String path = (String)args[0];
+            searches.add(path + "|" + args[1]);
+            if (names.length == 0)
+               return null;
+
+            List<URL> urls = new ArrayList<URL>();
+            for (String name : names)
+               urls.add(new URL("file:/bundle/" + (path.startsWith("/") ? path.substring(1) : path) + name));
+            return Collections.enumeration(urls);
+         }
+      });
+      return FrameworkProxies.newBundle(1L, answers);
+   }
+}
@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.osgi.framework.Bundle;
+
+/**
+ * Creates proxies of the framework interfaces for the tests of the extender internals.
+ * 
+ * A proxy answers a call with the value that is registered for the method name, or with 
+ * the default value of the return type. Proxies are equal by identity only.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class FrameworkProxies
+{
+   /**
+    * Computes the answer of a call from its arguments
+    */
+   public interface Answer
+   {
+      Object answer(Object[] args) throws Exception;
+   }
+
+   /**
+    * Create an active bundle with the given id and no headers
+    */
+   public static Bundle newBundle(long id)
+   {
+      return newBundle(id, new HashMap<String, Object>());
+   }
+
+   /**
+    * Create an active bundle with the given id and answers
+    */
+   public static Bundle newBundle(long id, Map<String, Object> answers)
+   {
+      Map<String, Object> bundleAnswers = new HashMap<String, Object>();
+      bundleAnswers.put("getBundleId", Long.valueOf(id));
+      bundleAnswers.put("getSymbolicName", "bundle" + id);
+      bundleAnswers.put("getState", Integer.valueOf(Bundle.ACTIVE));
+      bundleAnswers.put("getHeaders", new Hashtable<String, String>());
+      bundleAnswers.putAll(answers);
+      return newProxy(Bundle.class, "Bundle[" + id + "]", bundleAnswers);
+   }
+
+   /**
+    * Create a proxy of the given type
+    * @param name the string representation of the proxy
+    * @param answers the answers by method name, an {@link Answer} is called for every invocation
+    */
+   @SuppressWarnings("unchecked")
+   public static <T> T newProxy(final Class<T> type, final String name, final Map<String, Object> answers)
+   {
+      InvocationHandler handler = new InvocationHandler()
+      {
+         private Integer hashCode;
+
+         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+         {
+            String methodName = method.getName();
+            if (methodName.equals("hashCode"))
+            {
+               // Cached, so that hashing the proxy does not allocate
+               if (hashCode == null)
+                  hashCode = Integer.valueOf(System.identityHashCode(proxy));
+               return hashCode;
+            }
+            if (methodName.equals("equals"))
+               return proxy == args[0] ? Boolean.TRUE : Boolean.FALSE;
+            if (methodName.equals("toString"))
+               return name;
+
+            Object answer = answers.get(methodName);
+            if (answer instanceof Answer)
+               return ((Answer)answer).answer(args);
+            if (answer != null)
+               return answer;
+
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class)
+               return Boolean.FALSE;
+            if (returnType == int.class)
+               return Integer.valueOf(0);
+            if (returnType == long.class)
+               return Long.valueOf(0L);
+            return null;
+         }
+      };
+      return (T)Proxy.newProxyInstance(FrameworkProxies.class.getClassLoader(), new Class[] { type }, handler);
+   }
+}
@@ -0,0 +1,219 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the expiry and cancellation of delayed tasks on the {@link HashedWheelScheduler}.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class HashedWheelSchedulerTestCase
+{
+   private ScheduledThreadPoolExecutor delegate;
+   private HashedWheelScheduler wheel;
+
+   @Before
+   public void setUp()
+   {
+      delegate = new ScheduledThreadPoolExecutor(2);
+      // One round of the wheel takes 40ms
+      wheel = new HashedWheelScheduler(delegate, 10L, 3);
+   }
+
+   @After
+   public void tearDown()
+   {
+      wheel.shutdown();
+      delegate.shutdownNow();
+   }
+
+   @Test
+   public void testTaskExpires() throws Exception
+   {
+      long start = System.currentTimeMillis();
+      ScheduledFuture<String> future = wheel.schedule(new Callable<String>()
+      {
+         public String call()
+         {
+            return "expired";
+         }
+      }, 50, TimeUnit.MILLISECONDS);
+      assertEquals(1, wheel.getPendingCount());
+
+      assertEquals("expired", future.get(10, TimeUnit.SECONDS));
+      assertTrue("Not before the deadline", System.currentTimeMillis() - start >= 50);
+      assertTrue(future.isDone());
+      assertEquals(0, wheel.getPendingCount());
+   }
+
+   @Test
+   public void testDelayLongerThanOneRound() throws Exception
+   {
+      final long start = System.currentTimeMillis();
+      final AtomicInteger elapsed = new AtomicInteger();
+      final CountDownLatch latch = new CountDownLatch(1);
+      wheel.schedule(new Runnable()
+      {
+         public void run()
+         {
+            elapsed.set((int)(System.currentTimeMillis() - start));
+            latch.countDown();
+         }
+      }, 150, TimeUnit.MILLISECONDS);
+
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+      assertTrue("Elapsed: " + elapsed.get(), elapsed.get() >= 150);
+   }
+
+   @Test
+   public void testCancelledTaskDoesNotRun() throws Exception
+   {
+      final AtomicInteger runs = new AtomicInteger();
+      Runnable task = new Runnable()
+      {
+         public void run()
+         {
+            runs.incrementAndGet();
+         }
+      };
+      ScheduledFuture<?> future = wheel.schedule(task, 100, TimeUnit.MILLISECONDS);
+
+      // Let the tick move the task onto the wheel
+      Thread.sleep(30);
+      assertTrue(future.cancel(false));
+      assertTrue(future.isCancelled());
+      assertFalse("Cancel only once", future.cancel(false));
+
+      // Cancel right away, usually before the tick has seen the task
+      ScheduledFuture<?> other = wheel.schedule(task, 100, TimeUnit.MILLISECONDS);
+      assertTrue(other.cancel(false));
+
+      Thread.sleep(300);
+      assertEquals(0, runs.get());
+      assertEquals(0, wheel.getPendingCount());
+   }
+
+   @Test
+   public void testManyTasks() throws Exception
+   {
+      final CountDownLatch latch = new CountDownLatch(50);
+      final AtomicInteger runs = new AtomicInteger();
+      Runnable task = new Runnable()
+      {
+         public void run()
+         {
+            runs.incrementAndGet();
+            latch.countDown();
+         }
+      };
+
+      List<ScheduledFuture<?>> cancelled = new ArrayList<ScheduledFuture<?>>();
+      for (int i = 0; i < 100; i++)
+      {
+         ScheduledFuture<?> future = wheel.schedule(task, 10 + (i * 7) % 200, TimeUnit.MILLISECONDS);
+         if (i % 2 == 1)
+            cancelled.add(future);
+      }
+      for (ScheduledFuture<?> future : cancelled)
+         assertTrue(future.cancel(false));
+
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+      Thread.sleep(300);
+      assertEquals(50, runs.get());
+      assertEquals(0, wheel.getPendingCount());
+   }
+
+   @Test
+   public void testShutdownRejectsTasks()
+   {
+      wheel.shutdown();
+      assertTrue(wheel.isShutdown());
+      try
+      {
+         wheel.schedule(new Runnable()
+         {
+            public void run()
+            {
+            }
+         }, 10, TimeUnit.MILLISECONDS);
+         fail("RejectedExecutionException expected");
+      }
+      catch (RejectedExecutionException ex)
+      {
+         // expected
+      }
+      assertFalse("The delegate is not shut down", delegate.isShutdown());
+   }
+
+   @Test
+   public void testShutdownNowReturnsDelayedTasks() throws Exception
+   {
+      final AtomicInteger runs = new AtomicInteger();
+      Runnable task = new Runnable()
+      {
+         public void run()
+         {
+            runs.incrementAndGet();
+         }
+      };
+      assertFalse("Not terminated before shutdown", wheel.awaitTermination(10, TimeUnit.MILLISECONDS));
+
+      // One task on the wheel, one cancelled and one that the tick has usually not seen yet
+      wheel.schedule(task, 10, TimeUnit.SECONDS);
+      ScheduledFuture<?> cancelled = wheel.schedule(task, 10, TimeUnit.SECONDS);
+      Thread.sleep(30);
+      assertTrue(cancelled.cancel(false));
+      wheel.schedule(task, 10, TimeUnit.SECONDS);
+
+      List<Runnable> pending = wheel.shutdownNow();
+      assertEquals(2, pending.size());
+      assertEquals(0, wheel.getPendingCount());
+      assertTrue(wheel.isTerminated());
+      assertTrue(wheel.awaitTermination(0, TimeUnit.MILLISECONDS));
+
+      for (Runnable runnable : pending)
+         runnable.run();
+      assertEquals(2, runs.get());
+   }
+}
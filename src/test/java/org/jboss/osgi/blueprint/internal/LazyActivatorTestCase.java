@@ -0,0 +1,174 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.osgi.blueprint.internal.DescriptorInfo.ServiceInfo;
+import org.jboss.osgi.blueprint.internal.FrameworkProxies.Answer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceFactory;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+
+/**
+ * Test that a lazy placeholder does not block a bootstrap thread.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class LazyActivatorTestCase
+{
+   private static final long ACTIVATION_TIMEOUT = 10000L;
+
+   private ExecutorService creation;
+   private Bundle extender;
+
+   @Before
+   public void setUp()
+   {
+      // A single bootstrap thread, the requesting container and the lazy container compete for it
+      creation = Executors.newFixedThreadPool(1);
+      extender = FrameworkProxies.newBundle(0L);
+   }
+
+   @After
+   public void tearDown()
+   {
+      creation.shutdownNow();
+   }
+
+   @Test
+   public void testPlaceholderDoesNotBlockBootstrapThread() throws Exception
+   {
+      final AtomicReference<ServiceFactory> placeholder = new AtomicReference<ServiceFactory>();
+      final ServiceRegistration registration = FrameworkProxies.newProxy(ServiceRegistration.class, "ServiceRegistration", new HashMap<String, Object>());
+      Map<String, Object> contextAnswers = new HashMap<String, Object>();
+      contextAnswers.put("registerService", new Answer()
+      {
+         public Object answer(Object[] args)
+         {
+            placeholder.set((ServiceFactory)args[1]);
+            return registration;
+         }
+      });
+      final BundleContext providerContext = FrameworkProxies.newProxy(BundleContext.class, "BundleContext[1]", contextAnswers);
+      Map<String, Object> providerAnswers = new HashMap<String, Object>();
+      providerAnswers.put("getBundleContext", providerContext);
+      final Bundle provider = FrameworkProxies.newBundle(1L, providerAnswers);
+      final Bundle consumer = FrameworkProxies.newBundle(2L);
+
+      final AtomicReference<Object> requested = new AtomicReference<Object>();
+      final AtomicLong requestMillis = new AtomicLong();
+      final CountDownLatch consumerCreated = new CountDownLatch(1);
+      final CountDownLatch providerCreated = new CountDownLatch(1);
+      final AtomicReference<LazyActivator> activator = new AtomicReference<LazyActivator>();
+      final AtomicReference<BootstrapScheduler> bootstrap = new AtomicReference<BootstrapScheduler>();
+      BootstrapScheduler.ContainerFactory factory = new BootstrapScheduler.ContainerFactory()
+      {
+         public void createContainer(Bundle bundle, List<Object> pathList)
+         {
+            if (bundle == consumer)
+            {
+               // The consumer container looks up a service of the lazy container while it is created
+               long start = System.currentTimeMillis();
+               requested.set(placeholder.get().getService(consumer, registration));
+               requestMillis.set(System.currentTimeMillis() - start);
+            }
+            BlueprintEvent event = new BlueprintEvent(BlueprintEvent.CREATED, bundle, extender);
+            activator.get().blueprintEvent(event);
+            bootstrap.get().blueprintEvent(event);
+            (bundle == consumer ? consumerCreated : providerCreated).countDown();
+         }
+      };
+      bootstrap.set(new BootstrapScheduler(creation, new DescriptorCache(null), factory));
+      activator.set(new LazyActivator(bootstrap.get(), ACTIVATION_TIMEOUT));
+
+      List<String> interfaces = Arrays.asList("org.acme.Foo");
+      ServiceInfo service = new ServiceInfo(interfaces, 0, Collections.<String, String> emptyMap());
+      DescriptorInfo info = new DescriptorInfo(Collections.singletonList(service), null, null);
+      assertTrue("Placeholder registered", activator.get().register(provider, Collections.<Object> emptyList(), info));
+      assertNotNull("Placeholder", placeholder.get());
+
+      bootstrap.get().schedule(consumer, Collections.<Object> emptyList());
+      assertTrue("Consumer created", consumerCreated.await(ACTIVATION_TIMEOUT * 2, TimeUnit.MILLISECONDS));
+      assertNull("No service while the lazy container is not created", requested.get());
+      assertTrue("Request did not wait, took " + requestMillis.get() + "ms", requestMillis.get() < ACTIVATION_TIMEOUT / 2);
+
+      // The request still activated the lazy container, it is created once the bootstrap thread is free
+      assertTrue("Provider created", providerCreated.await(ACTIVATION_TIMEOUT, TimeUnit.MILLISECONDS));
+   }
+
+   @Test
+   public void testAutoExportServiceIsEager() throws Exception
+   {
+      Map<String, Object> contextAnswers = new HashMap<String, Object>();
+      contextAnswers.put("registerService", new Answer()
+      {
+         public Object answer(Object[] args)
+         {
+            throw new IllegalStateException("Unexpected placeholder for: " + Arrays.asList((String[])args[0]));
+         }
+      });
+      BundleContext providerContext = FrameworkProxies.newProxy(BundleContext.class, "BundleContext[1]", contextAnswers);
+      Map<String, Object> providerAnswers = new HashMap<String, Object>();
+      providerAnswers.put("getBundleContext", providerContext);
+      Bundle provider = FrameworkProxies.newBundle(1L, providerAnswers);
+
+      BootstrapScheduler.ContainerFactory factory = new BootstrapScheduler.ContainerFactory()
+      {
+         public void createContainer(Bundle bundle, List<Object> pathList)
+         {
+            throw new IllegalStateException("Unexpected container creation for: " + bundle);
+         }
+      };
+      BootstrapScheduler bootstrap = new BootstrapScheduler(creation, new DescriptorCache(null), factory);
+      LazyActivator activator = new LazyActivator(bootstrap, ACTIVATION_TIMEOUT);
+
+      // One service with explicit interfaces, one that uses auto-export
+      ServiceInfo explicit = new ServiceInfo(Arrays.asList("org.acme.Foo"), 0, Collections.<String, String> emptyMap());
+      ServiceInfo autoExport = new ServiceInfo(Collections.<String> emptyList(), 0, Collections.<String, String> emptyMap());
+      DescriptorInfo info = new DescriptorInfo(Arrays.asList(explicit, autoExport), null, null);
+      assertFalse("Container with an auto-export service is eager", activator.register(provider, Collections.<Object> emptyList(), info));
+   }
+}
@@ -0,0 +1,320 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.osgi.blueprint.BlueprintBatchListener;
+import org.jboss.osgi.blueprint.ListenerStatistics;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.service.blueprint.container.BlueprintEvent;
+import org.osgi.service.blueprint.container.BlueprintListener;
+
+/**
+ * Test the replay, overflow and eviction of the {@link ListenerQueue}.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ListenerQueueTestCase
+{
+   private final Bundle extender = FrameworkProxies.newBundle(0L);
+   private final Bundle bundleA = FrameworkProxies.newBundle(1L);
+   private final Bundle bundleB = FrameworkProxies.newBundle(2L);
+   private final TaskList executor = new TaskList();
+
+   @Test
+   public void testEventsAreDeliveredInOrder()
+   {
+      RecordingListener listener = new RecordingListener();
+      ListenerQueue queue = new ListenerQueue(listener, executor, 10, 1000L);
+
+      BlueprintEvent creating = new BlueprintEvent(BlueprintEvent.CREATING, bundleA, extender);
+      BlueprintEvent created = new BlueprintEvent(BlueprintEvent.CREATED, bundleA, extender);
+      assertTrue(queue.offer(creating));
+      assertTrue(queue.offer(created));
+      assertEquals("One delivery task", 1, executor.tasks.size());
+      assertTrue("Nothing delivered on the emitting thread", listener.events.isEmpty());
+
+      executor.runAll();
+      assertEquals(Arrays.asList(creating, created), listener.events);
+      assertEquals(2, queue.getStatistics().getDelivered());
+   }
+
+   @Test
+   public void testReplayIsDeliveredBeforeBufferedEvents()
+   {
+      RecordingListener listener = new RecordingListener();
+      ListenerQueue queue = new ListenerQueue(listener, executor, 10, 1000L);
+
+      queue.beginReplay();
+      BlueprintEvent liveB = new BlueprintEvent(BlueprintEvent.DESTROYING, bundleB, extender);
+      assertTrue(queue.offer(liveB));
+      assertTrue("Live event is buffered", executor.tasks.isEmpty());
+
+      // The replay of B is superseded by the live event of B
+      BlueprintEvent replayA = new BlueprintEvent(new BlueprintEvent(BlueprintEvent.CREATED, bundleA, extender), true);
+      BlueprintEvent replayB = new BlueprintEvent(new BlueprintEvent(BlueprintEvent.CREATED, bundleB, extender), true);
+      queue.endReplay(Arrays.asList(replayA, replayB));
+
+      executor.runAll();
+      assertEquals(Arrays.asList(replayA, liveB), listener.events);
+   }
+
+   @Test
+   public void testReplayIsOneBatch()
+   {
+      final List<List<BlueprintEvent>> batches = new ArrayList<List<BlueprintEvent>>();
+      BlueprintBatchListener listener = new BlueprintBatchListener()
+      {
+         public void blueprintEvents(List<BlueprintEvent> events)
+         {
+            batches.add(events);
+         }
+
+         public void blueprintEvent(BlueprintEvent event)
+         {
+            batches.add(Arrays.asList(event));
+         }
+      };
+      ListenerQueue queue = new ListenerQueue(listener, executor, 10, 1000L);
+
+      queue.beginReplay();
+      BlueprintEvent replayA = new BlueprintEvent(new BlueprintEvent(BlueprintEvent.CREATED, bundleA, extender), true);
+      BlueprintEvent replayB = new BlueprintEvent(new BlueprintEvent(BlueprintEvent.CREATED, bundleB, extender), true);
+      queue.endReplay(Arrays.asList(replayA, replayB));
+
+      executor.runAll();
+      assertEquals(1, batches.size());
+      assertEquals(Arrays.asList(replayA, replayB), batches.get(0));
+      assertEquals(2, queue.getStatistics().getDelivered());
+   }
+
+   @Test
+   public void testOfferDuringEndReplayFollowsReplay() throws Exception
+   {
+      RecordingListener listener = new RecordingListener();
+      final ListenerQueue queue = new ListenerQueue(listener, executor, 10, 1000L);
+      final BlueprintEvent live = new BlueprintEvent(BlueprintEvent.DESTROYING, bundleB, extender);
+      final Thread[] emitter = new Thread[1];
+
+      // Offer a live event from another thread while the replay is being queued
+      BlueprintEvent replayA = new BlueprintEvent(new BlueprintEvent(BlueprintEvent.CREATED, bundleA, extender), true);
+      List<BlueprintEvent> snapshot = new ArrayList<BlueprintEvent>(Arrays.asList(replayA))
+      {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         public boolean isEmpty()
+         {
+            emitter[0] = new Thread(new Runnable()
+            {
+               public void run()
+               {
+                  queue.offer(live);
+               }
+            });
+            emitter[0].start();
+            try
+            {
+               emitter[0].join(200);
+            }
+            catch (InterruptedException ex)
+            {
+               Thread.currentThread().interrupt();
+            }
+            return super.isEmpty();
+         }
+      };
+
+      queue.beginReplay();
+      queue.endReplay(snapshot);
+      emitter[0].join(10000);
+
+      executor.runAll();
+      assertEquals(Arrays.asList(replayA, live), listener.events);
+   }
+
+   @Test
+   public void testReplayIsMeasuredPerEvent() throws Exception
+   {
+      // Each event takes a third of the timeout, the whole replay takes longer than the timeout
+      BlueprintListener listener = new BlueprintListener()
+      {
+         public void blueprintEvent(BlueprintEvent event)
+         {
+            try
+            {
+               Thread.sleep(50);
+            }
+            catch (InterruptedException ex)
+            {
+               Thread.currentThread().interrupt();
+            }
+         }
+      };
+      ListenerQueue queue = new ListenerQueue(listener, executor, 10, 150L);
+
+      List<BlueprintEvent> snapshot = new ArrayList<BlueprintEvent>();
+      for (int i = 0; i < 6; i++)
+      {
+         Bundle bundle = FrameworkProxies.newBundle(10L + i);
+         snapshot.add(new BlueprintEvent(new BlueprintEvent(BlueprintEvent.CREATED, bundle, extender), true));
+      }
+      queue.beginReplay();
+      queue.endReplay(snapshot);
+
+      Thread delivery = new Thread(executor.tasks.remove(0));
+      delivery.start();
+      boolean stalled = false;
+      while (delivery.isAlive())
+      {
+         stalled |= queue.isStalled();
+         Thread.sleep(5);
+      }
+      assertFalse("Stalled during the replay", stalled);
+
+      // The n-th event waited n times the delivery time
+      ListenerStatistics stats = queue.getStatistics();
+      assertEquals(6, stats.getDelivered());
+      assertTrue("Average: " + stats.getAverageLatency(), stats.getAverageLatency() >= 150);
+      assertTrue("Max: " + stats.getMaxLatency(), stats.getMaxLatency() >= 300);
+   }
+
+   @Test
+   public void testOverflowDropsEvents()
+   {
+      RecordingListener listener = new RecordingListener();
+      ListenerQueue queue = new ListenerQueue(listener, executor, 2, 1000L);
+
+      assertTrue(queue.offer(new BlueprintEvent(BlueprintEvent.CREATING, bundleA, extender)));
+      assertTrue(queue.offer(new BlueprintEvent(BlueprintEvent.CREATED, bundleA, extender)));
+      assertFalse("Queue is full", queue.offer(new BlueprintEvent(BlueprintEvent.DESTROYING, bundleA, extender)));
+
+      ListenerStatistics stats = queue.getStatistics();
+      assertEquals(2, stats.getQueueDepth());
+      assertEquals(1, stats.getDropped());
+
+      executor.runAll();
+      assertEquals(2, listener.events.size());
+      assertEquals(0, queue.getStatistics().getQueueDepth());
+   }
+
+   @Test
+   public void testFailingListenerIsClosed()
+   {
+      BlueprintListener listener = new BlueprintListener()
+      {
+         public void blueprintEvent(BlueprintEvent event)
+         {
+            throw new IllegalStateException("Listener failure");
+         }
+      };
+      ListenerQueue queue = new ListenerQueue(listener, executor, 10, 1000L);
+
+      assertTrue(queue.offer(new BlueprintEvent(BlueprintEvent.CREATING, bundleA, extender)));
+      assertTrue(queue.offer(new BlueprintEvent(BlueprintEvent.CREATED, bundleA, extender)));
+      executor.runAll();
+
+      assertTrue(queue.isClosed());
+      assertEquals("Pending events are discarded", 0, queue.getStatistics().getQueueDepth());
+      assertFalse(queue.offer(new BlueprintEvent(BlueprintEvent.DESTROYING, bundleA, extender)));
+   }
+
+   @Test
+   public void testSlowListenerIsStalled() throws Exception
+   {
+      final CountDownLatch entered = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      BlueprintListener listener = new BlueprintListener()
+      {
+         public void blueprintEvent(BlueprintEvent event)
+         {
+            entered.countDown();
+            try
+            {
+               release.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException ex)
+            {
+               Thread.currentThread().interrupt();
+            }
+         }
+      };
+      ListenerQueue queue = new ListenerQueue(listener, executor, 10, 50L);
+      assertTrue(queue.offer(new BlueprintEvent(BlueprintEvent.CREATED, bundleA, extender)));
+
+      Thread delivery = new Thread(executor.tasks.remove(0));
+      delivery.start();
+      try
+      {
+         assertTrue(entered.await(10, TimeUnit.SECONDS));
+         Thread.sleep(200);
+         assertTrue(queue.isStalled());
+      }
+      finally
+      {
+         release.countDown();
+         delivery.join(10000);
+      }
+      assertFalse(queue.isStalled());
+      assertFalse(queue.isClosed());
+   }
+
+   static class RecordingListener implements BlueprintListener
+   {
+      final List<BlueprintEvent> events = new ArrayList<BlueprintEvent>();
+
+      public void blueprintEvent(BlueprintEvent event)
+      {
+         events.add(event);
+      }
+   }
+
+   static class TaskList implements Executor
+   {
+      final List<Runnable> tasks = new ArrayList<Runnable>();
+
+      public void execute(Runnable task)
+      {
+         tasks.add(task);
+      }
+
+      void runAll()
+      {
+         while (tasks.isEmpty() == false)
+            tasks.remove(0).run();
+      }
+   }
+}
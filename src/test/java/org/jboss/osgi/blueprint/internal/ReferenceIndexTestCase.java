@@ -0,0 +1,169 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.framework.Filter;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Test the objectClass index of the {@link ReferenceIndex}.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ReferenceIndexTestCase
+{
+   private final Bundle owner = FrameworkProxies.newBundle(1L);
+
+   @Test
+   public void testObjectClassOfFilter()
+   {
+      assertEquals("a.B", ReferenceIndex.getObjectClass("(objectClass=a.B)"));
+      assertEquals("a.B", ReferenceIndex.getObjectClass(" (objectclass=a.B) "));
+      assertEquals("a.B", ReferenceIndex.getObjectClass("(&(objectClass=a.B)(x=y))"));
+      assertEquals("a.B", ReferenceIndex.getObjectClass("(&(x=y)(objectClass=a.B)(osgi.service.blueprint.compname=c))"));
+      assertEquals("a.B", ReferenceIndex.getObjectClass("(&(objectClass=a.B)(|(x=y)(objectClass=c.D)))"));
+   }
+
+   @Test
+   public void testNonIndexableFilter()
+   {
+      assertNull(ReferenceIndex.getObjectClass(null));
+      assertNull(ReferenceIndex.getObjectClass("(x=y)"));
+      assertNull(ReferenceIndex.getObjectClass("(objectClass=a.*)"));
+      assertNull(ReferenceIndex.getObjectClass("(objectClass=*)"));
+      assertNull(ReferenceIndex.getObjectClass("(objectClass=a\\(B)"));
+      assertNull(ReferenceIndex.getObjectClass("(&(objectClass=a.B)(objectClass=c.D))"));
+      assertNull(ReferenceIndex.getObjectClass("(|(objectClass=a.B)(objectClass=c.D))"));
+      assertNull(ReferenceIndex.getObjectClass("(!(objectClass=a.B))"));
+   }
+
+   @Test
+   public void testIndexedDelivery()
+   {
+      ReferenceIndex index = new ReferenceIndex();
+      RecordingListener indexed = new RecordingListener();
+      RecordingListener unindexed = new RecordingListener();
+      index.addServiceListener(owner, indexed, newFilter("(objectClass=a.B)", true));
+      index.addServiceListener(owner, unindexed, newFilter("(x=y)", true));
+      assertEquals(2, index.size());
+
+      index.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, newReference("c.D")));
+      assertEquals(0, indexed.events.size());
+      assertEquals("Non-indexable filters see every event", 1, unindexed.events.size());
+
+      index.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, newReference("a.B")));
+      assertEquals(1, indexed.events.size());
+      assertEquals(2, unindexed.events.size());
+
+      // A listener indexed by more than one of the classes is called once
+      index.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, newReference("a.B", "c.D")));
+      assertEquals(2, indexed.events.size());
+      assertEquals(3, unindexed.events.size());
+
+      index.removeAll(owner);
+      assertEquals(0, index.size());
+   }
+
+   @Test
+   public void testModifiedEndMatch()
+   {
+      ReferenceIndex index = new ReferenceIndex();
+      RecordingListener listener = new RecordingListener();
+      index.addServiceListener(owner, listener, newFilter("(&(objectClass=a.B)(x=y))", false));
+
+      index.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, newReference("a.B")));
+      assertTrue(listener.events.isEmpty());
+
+      index.serviceChanged(new ServiceEvent(ServiceEvent.MODIFIED, newReference("a.B")));
+      assertEquals(1, listener.events.size());
+      assertEquals(ServiceEvent.MODIFIED_ENDMATCH, listener.events.get(0).getType());
+   }
+
+   @Test
+   public void testListenerIsReplaced()
+   {
+      ReferenceIndex index = new ReferenceIndex();
+      RecordingListener listener = new RecordingListener();
+      index.addServiceListener(owner, listener, newFilter("(objectClass=a.B)", true));
+      index.addServiceListener(owner, listener, newFilter("(objectClass=c.D)", true));
+      assertEquals(1, index.size());
+
+      index.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, newReference("a.B")));
+      assertTrue(listener.events.isEmpty());
+      index.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, newReference("c.D")));
+      assertEquals(1, listener.events.size());
+
+      index.removeServiceListener(owner, listener);
+      assertEquals(0, index.size());
+   }
+
+   private static Filter newFilter(String filter, boolean match)
+   {
+      Map<String, Object> answers = new HashMap<String, Object>();
+      answers.put("match", Boolean.valueOf(match));
+      return FrameworkProxies.newProxy(Filter.class, filter, answers);
+   }
+
+   private static ServiceReference newReference(String... classes)
+   {
+      final Map<String, Object> properties = new HashMap<String, Object>();
+      properties.put(Constants.OBJECTCLASS, classes);
+      Map<String, Object> answers = new HashMap<String, Object>();
+      answers.put("getProperty", new FrameworkProxies.Answer()
+      {
+         public Object answer(Object[] args)
+         {
+            return properties.get(args[0]);
+         }
+      });
+      answers.put("isAssignableTo", Boolean.TRUE);
+      return FrameworkProxies.newProxy(ServiceReference.class, "ServiceReference" + Arrays.asList(classes), answers);
+   }
+
+   static class RecordingListener implements ServiceListener
+   {
+      final List<ServiceEvent> events = new ArrayList<ServiceEvent>();
+
+      public void serviceChanged(ServiceEvent event)
+      {
+         events.add(event);
+      }
+   }
+}
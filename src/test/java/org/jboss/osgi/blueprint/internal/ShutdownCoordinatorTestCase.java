@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2005, JBoss Inc., and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.osgi.blueprint.internal;
+
+//$Id$
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+/**
+ * Test the shutdown layers of the {@link ShutdownCoordinator}.
+ * 
+ * @author agent@local
+ * @since 18-Oct-2026
+ */
+public class ShutdownCoordinatorTestCase
+{
+   private final Bundle bundleA = FrameworkProxies.newBundle(1L);
+   private final Bundle bundleB = FrameworkProxies.newBundle(2L);
+   private final Bundle bundleC = FrameworkProxies.newBundle(3L);
+   private final Bundle bundleD = FrameworkProxies.newBundle(4L);
+
+   @Test
+   public void testConsumersBeforeProviders()
+   {
+      // A references B, B references C, D references C and a bundle that has no container
+      Map<Bundle, Set<Bundle>> providers = new LinkedHashMap<Bundle, Set<Bundle>>();
+      providers.put(bundleC, providersOf());
+      providers.put(bundleB, providersOf(bundleC));
+      providers.put(bundleA, providersOf(bundleB));
+      providers.put(bundleD, providersOf(bundleC, FrameworkProxies.newBundle(5L)));
+
+      List<List<Bundle>> layers = ShutdownCoordinator.getLayers(providers);
+      assertEquals(3, layers.size());
+      assertEquals(new HashSet<Bundle>(Arrays.asList(bundleA, bundleD)), new HashSet<Bundle>(layers.get(0)));
+      assertEquals(Collections.singletonList(bundleB), layers.get(1));
+      assertEquals(Collections.singletonList(bundleC), layers.get(2));
+   }
+
+   @Test
+   public void testCycleIsDestroyedTogether()
+   {
+      // A and B reference each other, C references A
+      Map<Bundle, Set<Bundle>> providers = new LinkedHashMap<Bundle, Set<Bundle>>();
+      providers.put(bundleA, providersOf(bundleB));
+      providers.put(bundleB, providersOf(bundleA));
+      providers.put(bundleC, providersOf(bundleA));
+
+      List<List<Bundle>> layers = ShutdownCoordinator.getLayers(providers);
+      assertEquals(2, layers.size());
+      assertEquals(Collections.singletonList(bundleC), layers.get(0));
+      assertEquals(new HashSet<Bundle>(Arrays.asList(bundleA, bundleB)), new HashSet<Bundle>(layers.get(1)));
+   }
+
+   @Test
+   public void testCycleIsDestroyedBeforeItsProvider()
+   {
+      // A and B reference each other, A references C, C references D
+      Map<Bundle, Set<Bundle>> providers = new LinkedHashMap<Bundle, Set<Bundle>>();
+      providers.put(bundleD, providersOf());
+      providers.put(bundleC, providersOf(bundleD));
+      providers.put(bundleA, providersOf(bundleB, bundleC));
+      providers.put(bundleB, providersOf(bundleA));
+
+      List<List<Bundle>> layers = ShutdownCoordinator.getLayers(providers);
+      assertEquals(3, layers.size());
+      assertEquals(new HashSet<Bundle>(Arrays.asList(bundleA, bundleB)), new HashSet<Bundle>(layers.get(0)));
+      assertEquals(Collections.singletonList(bundleC), layers.get(1));
+      assertEquals(Collections.singletonList(bundleD), layers.get(2));
+   }
+
+   @Test
+   public void testIndependentContainersShareOneLayer()
+   {
+      Map<Bundle, Set<Bundle>> providers = new LinkedHashMap<Bundle, Set<Bundle>>();
+      providers.put(bundleA, providersOf());
+      providers.put(bundleB, providersOf(bundleB));
+
+      List<List<Bundle>> layers = ShutdownCoordinator.getLayers(providers);
+      assertEquals(1, layers.size());
+      assertTrue(layers.get(0).containsAll(Arrays.asList(bundleA, bundleB)));
+   }
+
+   private static Set<Bundle> providersOf(Bundle... bundles)
+   {
+      return new HashSet<Bundle>(Arrays.asList(bundles));
+   }
+}